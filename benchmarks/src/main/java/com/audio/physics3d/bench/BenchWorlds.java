@@ -0,0 +1,49 @@
+package com.audio.physics3d.bench;
+
+import java.util.Random;
+
+import org.joml.Vector3f;
+
+import com.audio.physics3d.Collider3D;
+import com.audio.physics3d.PhysicsEngine3D;
+import com.audio.physics3d.RigidBody3D;
+
+/**
+ * Builds reproducible headless worlds for the benchmarks.
+ */
+final class BenchWorlds {
+
+    private BenchWorlds() {
+    }
+
+    /**
+     * A static ground box with {@code bodyCount} unit bodies scattered above
+     * it. The ground grows with the body count so the density, and with it
+     * the contacts per body, stays roughly constant.
+     *
+     * @param sphereFraction share of the bodies that are spheres, the rest are boxes
+     */
+    static PhysicsEngine3D scatter(int bodyCount, double sphereFraction, long seed) {
+        PhysicsEngine3D engine = new PhysicsEngine3D();
+        float half = (float) Math.sqrt(bodyCount) * 1.5f;
+
+        Vector3f groundPos = new Vector3f(0, -3, 0);
+        Vector3f groundSize = new Vector3f(half + 5f, 1f, half + 5f);
+        engine.addBody(new RigidBody3D(groundPos, 0, true, null), new Collider3D(groundPos, groundSize, "Ground"));
+
+        Random random = new Random(seed);
+        Vector3f unit = new Vector3f(0.5f, 0.5f, 0.5f);
+        for (int i = 0; i < bodyCount; i++) {
+            Vector3f p = new Vector3f(
+                    (random.nextFloat() * 2f - 1f) * half,
+                    random.nextFloat() * 10f,
+                    (random.nextFloat() * 2f - 1f) * half);
+            RigidBody3D body = new RigidBody3D(p, 1f, false, null);
+            if (random.nextDouble() < sphereFraction)
+                engine.addBody(body, new Collider3D(p, 0.5f, "Sphere"));
+            else
+                engine.addBody(body, new Collider3D(p, unit, "Box"));
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,79 @@
+package com.audio.physics3d.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.audio.physics3d.Collider3D;
+
+/**
+ * Pair throughput of {@link Collider3D#isColliding} for each shape pairing.
+ * Roughly half of the pairs overlap so both branches are exercised.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionPairBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({ "sphere-sphere", "aabb-aabb", "sphere-aabb", "mixed" })
+    public String shapes;
+
+    private Collider3D[] first;
+    private Collider3D[] second;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7L);
+        first = new Collider3D[PAIRS];
+        second = new Collider3D[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            boolean sphereA, sphereB;
+            switch (shapes) {
+                case "sphere-sphere": sphereA = true; sphereB = true; break;
+                case "aabb-aabb": sphereA = false; sphereB = false; break;
+                case "sphere-aabb": sphereA = true; sphereB = false; break;
+                default: sphereA = random.nextBoolean(); sphereB = random.nextBoolean(); break;
+            }
+            first[i] = collider(sphereA, new Vector3f());
+            second[i] = collider(sphereB, new Vector3f(
+                    random.nextFloat() * 2.4f - 1.2f,
+                    random.nextFloat() * 2.4f - 1.2f,
+                    random.nextFloat() * 2.4f - 1.2f));
+        }
+    }
+
+    private static Collider3D collider(boolean sphere, Vector3f position) {
+        return sphere
+                ? new Collider3D(position, 0.5f, "Sphere")
+                : new Collider3D(position, new Vector3f(0.5f, 0.5f, 0.5f), "Box");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int isColliding() {
+        int hits = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            if (first[i].isColliding(second[i]))
+                hits++;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,131 @@
+package com.audio.physics3d.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.audio.physics3d.BodyStore3D;
+import com.audio.physics3d.Collider3D;
+import com.audio.physics3d.Collision3D;
+import com.audio.physics3d.ContactManifold3D;
+import com.audio.physics3d.SequentialImpulseSolver3D;
+
+/**
+ * Per-contact cost of the {@link Collision3D} detection and resolution paths.
+ *
+ * The world holds {@code PAIRS} disjoint, overlapping body pairs of one
+ * shape pairing. Resolution moves the bodies, so the resolve benchmarks
+ * restore the positions and velocities first; that copy is part of the
+ * measured time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactBenchmark {
+
+    private static final int PAIRS = 1024;
+    private static final float DT = 1f / 60f;
+
+    @Param({ "sphere-sphere", "aabb-aabb", "sphere-aabb" })
+    public String shapes;
+
+    private final BodyStore3D store = new BodyStore3D(PAIRS * 2);
+    private Collider3D[] colliders;
+    private final ContactManifold3D contacts = new ContactManifold3D(PAIRS);
+    private final SequentialImpulseSolver3D solver = new SequentialImpulseSolver3D(8, 0.8f);
+    private int[] order;
+
+    private float[] posX, posY, posZ, velX, velY, velZ;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11L);
+        colliders = new Collider3D[PAIRS * 2];
+        order = new int[PAIRS];
+        for (int p = 0; p < PAIRS; p++) {
+            // pairs sit far apart from each other, with the second body
+            // overlapping the first and moving towards it
+            Vector3f a = new Vector3f(p * 10f, 0f, 0f);
+            Vector3f b = new Vector3f(a).add(0.6f + random.nextFloat() * 0.3f, random.nextFloat() * 0.2f, 0f);
+            boolean sphereA = !shapes.equals("aabb-aabb");
+            boolean sphereB = shapes.equals("sphere-sphere");
+            add(2 * p, a, sphereA, 0f);
+            add(2 * p + 1, b, sphereB, -2f);
+            order[p] = p;
+        }
+        posX = store.posX.clone();
+        posY = store.posY.clone();
+        posZ = store.posZ.clone();
+        velX = store.velX.clone();
+        velY = store.velY.clone();
+        velZ = store.velZ.clone();
+        detectAll();
+    }
+
+    private void add(int index, Vector3f position, boolean sphere, float vx) {
+        store.add(position.x, position.y, position.z, 1f);
+        store.velX[index] = vx;
+        colliders[index] = sphere
+                ? new Collider3D(position, 0.5f, "Sphere")
+                : new Collider3D(position, new Vector3f(0.5f, 0.5f, 0.5f), "Box");
+    }
+
+    private void restore() {
+        int n = store.size();
+        System.arraycopy(posX, 0, store.posX, 0, n);
+        System.arraycopy(posY, 0, store.posY, 0, n);
+        System.arraycopy(posZ, 0, store.posZ, 0, n);
+        System.arraycopy(velX, 0, store.velX, 0, n);
+        System.arraycopy(velY, 0, store.velY, 0, n);
+        System.arraycopy(velZ, 0, store.velZ, 0, n);
+    }
+
+    private int detectAll() {
+        contacts.clear();
+        for (int p = 0; p < PAIRS; p++) {
+            Collision3D.detect(2 * p, colliders[2 * p], 2 * p + 1, colliders[2 * p + 1], contacts);
+        }
+        contacts.measureApproachSpeeds(store);
+        return contacts.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int detect() {
+        return detectAll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public BodyStore3D resolvePairwise() {
+        restore();
+        Collision3D.resolveContacts(contacts, store, 0.8f);
+        return store;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public BodyStore3D resolveSequentialImpulse() {
+        restore();
+        solver.prepare(contacts, store, DT);
+        solver.solve(contacts, order, 0, contacts.size(), store, DT);
+        solver.finish(contacts, store);
+        return store;
+    }
+}
@@ -0,0 +1,75 @@
+package com.audio.physics3d.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.audio.physics3d.PairwiseContactSolver3D;
+import com.audio.physics3d.PhysicsEngine3D;
+
+/**
+ * Time per {@link PhysicsEngine3D#step()} for scattered sphere/box worlds.
+ *
+ * Each iteration starts from a fresh world, so every iteration covers the
+ * same part of the simulation: bodies falling, piling up and, with
+ * sleeping on, coming to rest.
+ *
+ * The default parameters are a representative subset (about a minute).
+ * The full sweep is run by overriding them:
+ *
+ * <pre>
+ * java -jar benchmarks.jar StepBenchmark -p bodyCount=100,1000,10000,50000 \
+ *     -p sphereFraction=0.0,0.5,1.0 -p solver=sequential-impulse,pairwise -p sleeping=true,false
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StepBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int bodyCount;
+
+    @Param({ "0.5" })
+    public double sphereFraction;
+
+    @Param({ "serial", "parallel" })
+    public String mode;
+
+    @Param({ "sequential-impulse" })
+    public String solver;
+
+    @Param({ "true" })
+    public boolean sleeping;
+
+    private PhysicsEngine3D engine;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = BenchWorlds.scatter(bodyCount, sphereFraction, 42L);
+        engine.setParallel(mode.equals("parallel"));
+        engine.setSleeping(sleeping);
+        if (solver.equals("pairwise"))
+            engine.setSolver(new PairwiseContactSolver3D(0.8f));
+    }
+
+    @Benchmark
+    public PhysicsEngine3D step() {
+        engine.step();
+        return engine;
+    }
+}
@@ -0,0 +1,16 @@
+#version 330 core
+layout(location = 0) in vec3 aPos;
+layout(location = 1) in mat4 aModel;  // locations 1-4, one column each
+layout(location = 5) in vec4 aColor;
+
+layout(std140) uniform Frame {
+    mat4 view;
+    mat4 proj;
+};
+
+out vec3 vColor;
+
+void main() {
+    vColor = aColor.rgb;
+    gl_Position = proj * view * aModel * vec4(aPos, 1.0);
+}
@@ -2,8 +2,10 @@
 layout(location = 0) in vec3 aPos;
 
 uniform mat4 model;
-uniform mat4 view;
-uniform mat4 proj;
+layout(std140) uniform Frame {
+    mat4 view;
+    mat4 proj;
+};
 
 void main() {
     gl_Position = proj * view * model * vec4(aPos, 1.0);
@@ -4,22 +4,28 @@ import org.joml.*;
 
 public class Camera {
     public final Vector3f position;
+    private final Vector3f target = new Vector3f(0, 0, 0);
+    private final Vector3f up = new Vector3f(0, 1, 0);
 
     public Camera(Vector3f position) {
         this.position = position;
     }
 
     public float[] getViewMatrix() {
-        Matrix4f view = new Matrix4f().lookAt(
-            position,
-            new Vector3f(0, 0, 0),
-            new Vector3f(0, 1, 0)
-        );
-        return view.get(new float[16]);
+        return getViewMatrix(new Matrix4f()).get(new float[16]);
     }
 
     public float[] getProjectionMatrix(float aspect) {
-        Matrix4f proj = new Matrix4f().perspective((float) java.lang.Math.toRadians(70.0f), aspect, 0.1f, 100.0f);
-        return proj.get(new float[16]);
+        return getProjectionMatrix(aspect, new Matrix4f()).get(new float[16]);
+    }
+
+    /** Writes the view matrix into {@code dest}, allocating nothing. */
+    public Matrix4f getViewMatrix(Matrix4f dest) {
+        return dest.setLookAt(position, target, up);
+    }
+
+    /** Writes the projection matrix into {@code dest}, allocating nothing. */
+    public Matrix4f getProjectionMatrix(float aspect, Matrix4f dest) {
+        return dest.setPerspective((float) java.lang.Math.toRadians(70.0f), aspect, 0.1f, 100.0f);
     }
 }
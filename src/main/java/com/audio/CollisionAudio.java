@@ -0,0 +1,218 @@
+package com.audio;
+
+import com.audio.physics3d.ImpactBuffer3D;
+import com.audio.physics3d.PhysicsEngine3D;
+import com.audio.physics3d.RigidBody3D;
+
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.SOFTDeferredUpdates;
+
+import java.util.Arrays;
+
+/**
+ * Turns the impacts a physics engine pushes into an {@link ImpactBuffer3D}
+ * into sounds, once per frame, on the audio thread.
+ *
+ * Each {@link #process()} drains the buffer, merges the impacts of each
+ * body pair into its strongest one, and drops impacts of a body that
+ * already sounded within the last {@link #setMinInterval minimum interval}
+ * (static bodies excepted, or the ground would silence everything). The
+ * rest are mapped to a gain and pitch, harder hits louder and lower, and
+ * started on a {@link VoicePool} inside one deferred OpenAL update where
+ * the driver supports AL_SOFT_deferred_updates.
+ *
+ * Nothing is allocated per frame; all working arrays are sized to the
+ * buffer's capacity up front.
+ */
+public class CollisionAudio {
+
+  /** Picks the sound for an impact between two bodies, or null for silence. */
+  @FunctionalInterface
+  public interface SoundSelector {
+    Sound select(RigidBody3D a, RigidBody3D b);
+  }
+
+  private static final long EMPTY = -1L;
+
+  private final PhysicsEngine3D engine;
+  private final ImpactBuffer3D impacts;
+  private final VoicePool voices;
+  private final SoundSelector selector;
+
+  // the strongest impact per pair this frame, in first-seen order
+  private final int[] pairA, pairB;
+  private final float[] pairX, pairY, pairZ, pairStrength;
+  private final int[] pairSlot; // where each pair's key sits in the table
+  private int pairCount;
+
+  // pair key -> index into the pair arrays
+  private final long[] keys;
+  private final int[] values;
+  private final int mask;
+
+  // when each body last made a sound
+  private long[] lastSound = new long[0];
+
+  private long minIntervalNanos = 80_000_000L;
+  private float referenceImpulse = 10f; // N*s for full gain
+  private float referenceSpeed = 8f;   // m/s for full gain, when no impulse was solved
+  // the hardest hits play at the gain Sound gives its own source
+  private float minGain = 0.3f, maxGain = 2f;
+  private float minPitch = 0.85f, maxPitch = 1.15f;
+  private int priority = 1;
+
+  public CollisionAudio(PhysicsEngine3D engine, ImpactBuffer3D impacts, VoicePool voices, SoundSelector selector) {
+    this.engine = engine;
+    this.impacts = impacts;
+    this.voices = voices;
+    this.selector = selector;
+    int cap = impacts.capacity();
+    pairA = new int[cap];
+    pairB = new int[cap];
+    pairX = new float[cap];
+    pairY = new float[cap];
+    pairZ = new float[cap];
+    pairStrength = new float[cap];
+    pairSlot = new int[cap];
+    keys = new long[cap * 2];
+    values = new int[cap * 2];
+    mask = keys.length - 1;
+    Arrays.fill(keys, EMPTY);
+  }
+
+  // ----------------------------------------------------
+  // SETTINGS
+  // ----------------------------------------------------
+
+  /** Shortest time between two sounds from the same dynamic body. */
+  public void setMinInterval(float seconds) {
+    minIntervalNanos = (long) (seconds * 1e9);
+  }
+
+  /** Impulse (and closing speed, for solvers that report none) that plays at full gain. */
+  public void setReference(float impulse, float speed) {
+    referenceImpulse = impulse;
+    referenceSpeed = speed;
+  }
+
+  /** Gain of the softest and of the hardest impacts. */
+  public void setGainRange(float minGain, float maxGain) {
+    this.minGain = minGain;
+    this.maxGain = maxGain;
+  }
+
+  /** Pitch of the hardest and of the softest impacts. */
+  public void setPitchRange(float minPitch, float maxPitch) {
+    this.minPitch = minPitch;
+    this.maxPitch = maxPitch;
+  }
+
+  /** Voice priority the impacts play at. */
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  // ----------------------------------------------------
+  // PROCESSING
+  // ----------------------------------------------------
+
+  /** Plays the impacts pushed since the last call. Call once per frame. */
+  public void process() {
+    coalesce();
+    if (pairCount == 0)
+      return;
+
+    long now = System.nanoTime();
+    int bodyCount = engine.bodies.size();
+    if (lastSound.length < bodyCount) {
+      int old = lastSound.length;
+      lastSound = Arrays.copyOf(lastSound, bodyCount);
+      Arrays.fill(lastSound, old, bodyCount, Long.MIN_VALUE / 2);
+    }
+
+    boolean defer = AL.getCapabilities().AL_SOFT_deferred_updates;
+    if (defer)
+      SOFTDeferredUpdates.alDeferUpdatesSOFT();
+    try {
+      for (int p = 0; p < pairCount; p++) {
+        RigidBody3D a = engine.bodies.get(pairA[p]);
+        RigidBody3D b = engine.bodies.get(pairB[p]);
+        if (limited(a, now) || limited(b, now))
+          continue;
+        Sound sound = selector.select(a, b);
+        if (sound == null)
+          continue;
+        touch(a, now);
+        touch(b, now);
+
+        float strength = Math.min(1f, pairStrength[p]);
+        float gain = minGain + (maxGain - minGain) * strength;
+        float pitch = maxPitch + (minPitch - maxPitch) * strength;
+        voices.play(sound.getBufferId(), sound.getDuration(), pairX[p], pairY[p], pairZ[p], priority, gain, pitch,
+            false);
+      }
+    } finally {
+      if (defer)
+        SOFTDeferredUpdates.alProcessUpdatesSOFT();
+    }
+  }
+
+  /** Drains the buffer into one entry per body pair, keeping the strongest impact. */
+  private void coalesce() {
+    // forget last frame's pairs
+    for (int p = 0; p < pairCount; p++)
+      keys[pairSlot[p]] = EMPTY;
+    pairCount = 0;
+
+    int n = impacts.available();
+    for (int k = 0; k < n; k++) {
+      int s = impacts.slot(k);
+      int a = impacts.bodyA[s], b = impacts.bodyB[s];
+      float strength = impacts.impulse[s] > 0f
+          ? impacts.impulse[s] / referenceImpulse
+          : impacts.speed[s] / referenceSpeed;
+
+      long key = pairKey(a, b);
+      int slot = find(key);
+      int p;
+      if (keys[slot] == EMPTY) {
+        p = pairCount++;
+        keys[slot] = key;
+        values[slot] = p;
+        pairSlot[p] = slot;
+        pairA[p] = a;
+        pairB[p] = b;
+      } else {
+        p = values[slot];
+        if (strength <= pairStrength[p])
+          continue;
+      }
+      pairX[p] = impacts.x[s];
+      pairY[p] = impacts.y[s];
+      pairZ[p] = impacts.z[s];
+      pairStrength[p] = strength;
+    }
+    impacts.consume(n);
+  }
+
+  private boolean limited(RigidBody3D body, long now) {
+    return !body.isStatic && now - lastSound[body.getIndex()] < minIntervalNanos;
+  }
+
+  private void touch(RigidBody3D body, long now) {
+    if (!body.isStatic)
+      lastSound[body.getIndex()] = now;
+  }
+
+  private int find(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    int slot = (int) (h ^ (h >>> 32)) & mask;
+    while (keys[slot] != EMPTY && keys[slot] != key)
+      slot = (slot + 1) & mask;
+    return slot;
+  }
+
+  private static long pairKey(int a, int b) {
+    return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+  }
+}
@@ -0,0 +1,56 @@
+package com.audio;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix4fc;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Per-frame shader data in a uniform buffer, uploaded once per frame and
+ * read by every program that declares
+ *
+ * <pre>
+ * layout(std140) uniform Frame {
+ *     mat4 view;
+ *     mat4 proj;
+ * };
+ * </pre>
+ *
+ * {@link ShaderProgram} attaches that block to {@link #BINDING} when it
+ * links, so programs need no per-frame view or projection uniforms.
+ */
+public class FrameUniforms {
+
+    public static final String BLOCK_NAME = "Frame";
+    public static final int BINDING = 0;
+
+    // std140: two column-major mat4s, no padding
+    private static final int FLOATS = 32;
+
+    private final int ubo;
+    private final FloatBuffer data = MemoryUtil.memAllocFloat(FLOATS);
+
+    public FrameUniforms() {
+        ubo = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, ubo);
+        glBufferData(GL_UNIFORM_BUFFER, (long) FLOATS * Float.BYTES, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, ubo);
+    }
+
+    /** Uploads this frame's view and projection matrices. */
+    public void update(Matrix4fc view, Matrix4fc proj) {
+        view.get(0, data);
+        proj.get(16, data);
+        glBindBuffer(GL_UNIFORM_BUFFER, ubo);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(ubo);
+        MemoryUtil.memFree(data);
+    }
+}
@@ -24,21 +24,52 @@ public class Game3D {
 
 	private long window;
 	private ShaderProgram shader;
+	private InstancedRenderer renderer;
+	private FrameUniforms frameUniforms;
+	private final Matrix4f view = new Matrix4f();
+	private final Matrix4f proj = new Matrix4f();
+	private final Matrix4f viewProj = new Matrix4f();
+	private final FrustumIntersection frustum = new FrustumIntersection();
+	// shapes are shared and suballocated from one pool of GL buffers
+	private MeshRegistry meshes;
+	private SphereLodCache sphereLods;
+	// no visible window and no audio; for software GL (e.g. Mesa llvmpipe under Xvfb)
+	private final boolean headless;
+	// frames to render before exiting, or 0 to run until the window closes
+	private final int maxFrames;
 	private Mesh groundMesh;
 	private Mesh walkerMesh;
 	public Vector3f walkerPosition = new Vector3f(-10f, -1f, 4f);
 	public Vector3f walkerVelocity = new Vector3f(2f, 0f, 0f);
 	public float walkerSize = 0.5f;
+	private RigidBody3D walkerBody;
 	private Mesh sphereMesh;
 	private Camera camera;
 	private PhysicsEngine3D physics;
+	// steps the physics at its fixed rate; the walker is moved before each tick
+	private PhysicsThread3D physicsThread;
 	public AudioSystem audio = new AudioSystem();
 	public Sound bounceSound;
+	// shared sources for one-shot effects, so overlapping bounces each get a voice
+	private VoicePool voices;
+	// decoded clips, shared by path
+	private SampleCache samples;
+	// impacts pushed by the physics thread, played once per frame
+	private CollisionAudio collisionAudio;
 	public Sound footstepsSound;
 	public MusicStreamer backgroundMusic;
 
+	public Game3D() {
+		this(false, 0);
+	}
+
+	public Game3D(boolean headless, int maxFrames) {
+		this.headless = headless;
+		this.maxFrames = maxFrames;
+	}
+
 	public void run() {
-		physics = new PhysicsEngine3D(this);
+		physics = new PhysicsEngine3D();
 		init();
 		loop();
 		cleanup();
@@ -59,7 +90,8 @@ public class Game3D {
 
 		glfwMakeContextCurrent(window);
 		glfwSwapInterval(1);
-		glfwShowWindow(window);
+		if (!headless)
+			glfwShowWindow(window);
 		GL.createCapabilities();
 
 		glEnable(GL_DEPTH_TEST);
@@ -67,8 +99,8 @@ public class Game3D {
 
 		// Load shaders
 		try {
-			String vert = Files.readString(Path.of("res/shaders/vertex.glsl"));
-			String frag = Files.readString(Path.of("res/shaders/fragment.glsl"));
+			String vert = Files.readString(Path.of("res/shaders/instanced_vertex.glsl"));
+			String frag = Files.readString(Path.of("res/shaders/instanced_fragment.glsl"));
 			shader = new ShaderProgram(vert, frag);
 		} catch (IOException e) {
 			throw new RuntimeException("Shader load failed", e);
@@ -80,10 +112,22 @@ public class Game3D {
 		// Simple cube & sphere meshes
 		
 
+		meshes = new MeshRegistry(new MeshPool(true));
+		sphereLods = new SphereLodCache(meshes);
 		setupScene();
+		physicsThread = new PhysicsThread3D(physics, (engine, tick) -> updateWalker(engine.getFixedDt()));
+		renderer = new InstancedRenderer();
+		frameUniforms = new FrameUniforms();
 
+		if (headless)
+			return;
 		audio.init();
-		bounceSound = new Sound("assets/sounds/boing.ogg");		
+		voices = new VoicePool(32, 256);
+		samples = new SampleCache(32L * 1024 * 1024);
+		bounceSound = new Sound(samples, "assets/sounds/boing.ogg");
+		ImpactBuffer3D impacts = new ImpactBuffer3D(1024);
+		physics.setImpactBuffer(impacts);
+		collisionAudio = new CollisionAudio(physics, impacts, voices, this::impactSound);		
 
 		backgroundMusic = new MusicStreamer();
 		backgroundMusic.init(audio, "assets/music/music.ogg");
@@ -94,53 +138,58 @@ public class Game3D {
 
 	private void setupScene() {
 		
-		groundMesh = Mesh.createCube(new Vector3f(50f, 1f, 50.f), "Ground");		
+		groundMesh = meshes.cube(new Vector3f(50f, 1f, 50.f));		
 		RigidBody3D ground = new RigidBody3D(new Vector3f(0, -3, 0), 0, true, groundMesh);
 		ground.setColour(0.5f, 0.5f, 0.5f);
 		Collider3D groundCol = new Collider3D(new Vector3f(0, -3, 0), new Vector3f(50, 1, 50),"Ground");
 		physics.addBody(ground, groundCol);
 
-		sphereMesh = Mesh.createSphere(0.5f, 16, 16, "Sphere");
+		sphereMesh = sphereLods.getLevel(0.5f, 0);
 		RigidBody3D ball = new RigidBody3D(new Vector3f(0, 5f, 0), 1, false, sphereMesh);
 		ball.setColour(0f,1f,0f);
 		Collider3D ballCol = new Collider3D(new Vector3f(0, 5f, 0), 0.5f,"Ball");
+		ballCol.continuous = true;
 		physics.addBody(ball, ballCol);
 
-		walkerMesh = Mesh.createCube(new Vector3f(1f, 1f, 1f), "Walker");
-		RigidBody3D walkerBod = new RigidBody3D(walkerPosition, 1f, false, walkerMesh);
+		walkerMesh = meshes.cube(new Vector3f(1f, 1f, 1f));
+		walkerBody = new RigidBody3D(walkerPosition, 1f, false, walkerMesh);
 		Collider3D groundCol2 = new Collider3D(walkerPosition, new Vector3f(1f, 1f, 1f),"Walker"	);
-		walkerBod.setColour(1f,0f,1f);
-		physics.addBody(walkerBod, groundCol2);
+		walkerBody.setColour(1f,0f,1f);
+		physics.addBody(walkerBody, groundCol2);
 	}
 
 	private void loop() {
-		while (!glfwWindowShouldClose(window)) {
+		physicsThread.start();
+		TransformBuffer3D transforms = physicsThread.getTransforms();
+		int frames = 0;
+		while (!glfwWindowShouldClose(window) && (maxFrames == 0 || frames++ < maxFrames)) {
 
 			// 3d walker boing
 			//bounceSound.play(camera.position, walkerPosition);
 
 			glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-			physics.update(0.016f);
-
-			updateWalker(0.016f);
+			playImpacts();
 
+			frameUniforms.update(camera.getViewMatrix(view), camera.getProjectionMatrix(800f / 600f, proj));
+			frustum.set(proj.mul(view, viewProj));
 			shader.bind();
-			shader.setUniformMat4("view", camera.getViewMatrix());
-			shader.setUniformMat4("proj", camera.getProjectionMatrix(800f / 600f));
 
-			for (int i = 0; i < physics.bodies.size(); i++) {
+			TransformBuffer3D.Frame frame = transforms.latest();
+			float alpha = frame.alpha(System.nanoTime());
+			renderer.begin();
+			for (int i = 0; i < frame.count; i++) {
 				RigidBody3D body = physics.bodies.get(i);
-				
-
-				Matrix4f model = new Matrix4f().translate(
-						body.position.x, body.position.y, body.position.z);
-
-				shader.setUniformMat4("model", model.get(new float[16]));
-				shader.setUniformVec3("color", body.getColour());
-
-				body.mesh.render();
-
+				Collider3D col = physics.colliders.get(i);
+				float x = frame.x(i, alpha), y = frame.y(i, alpha), z = frame.z(i, alpha);
+				float ex = col.extentX(), ey = col.extentY(), ez = col.extentZ();
+				if (!frustum.testAab(x - ex, y - ey, z - ez, x + ex, y + ey, z + ez))
+					continue;
+				Mesh mesh = body.mesh;
+				if (col.type == Collider3D.Type.SPHERE)
+					mesh = sphereLods.get(col.radius, camera.position.distance(x, y, z));
+				renderer.add(mesh, x, y, z, body.getColour());
 			}
+			renderer.draw();
 
 			shader.unbind();
 			glfwSwapBuffers(window);
@@ -149,6 +198,7 @@ public class Game3D {
 	}
 
 	public void updateWalker(float dt) {
+		walkerBody.getPosition(walkerPosition);
 		walkerPosition.fma(dt, walkerVelocity);
 		if (walkerPosition.x > 15f) {
 			walkerPosition.x = 14f;
@@ -158,28 +208,59 @@ public class Game3D {
 			walkerPosition.x = -14f;
 			walkerVelocity.x *= -1f;
 		}
+		walkerBody.setPosition(walkerPosition);
 	}
 
-	public void playBounce(Vector3f ballPos){
-		if ((bounceSound != null))
-			bounceSound.stop();
-			bounceSound.play(camera.position, ballPos);
+	// a moving sphere hitting a box bounces
+	private Sound impactSound(RigidBody3D a, RigidBody3D b) {
+		if (!a.isStatic && physics.colliders.get(a.getIndex()).type == Collider3D.Type.SPHERE
+				&& physics.colliders.get(b.getIndex()).type == Collider3D.Type.AABB)
+			return bounceSound;
+		return null;
+	}
+
+	private void playImpacts() {
+		if (voices == null)
+			return;
+		voices.setListener(camera.position);
+		collisionAudio.process();
+		voices.update();
 	}
 
 	private void cleanup() {
-		backgroundMusic.cleanup();		
-		bounceSound.cleanup();
-		footstepsSound.cleanup();
-		audio.destroy();		
-		sphereMesh.cleanup();
-		walkerMesh.cleanup();
-		groundMesh.cleanup();
+		physicsThread.stop();
+		if (backgroundMusic != null)
+			backgroundMusic.cleanup();
+		if (voices != null)
+			voices.cleanup();
+		if (bounceSound != null)
+			bounceSound.cleanup();
+		if (samples != null)
+			samples.cleanup();
+		if (footstepsSound != null)
+			footstepsSound.cleanup();
+		if (!headless)
+			audio.destroy();
+		renderer.cleanup();
+		frameUniforms.cleanup();
+		sphereLods.cleanup();
+		meshes.release(walkerMesh);
+		meshes.release(groundMesh);
+		meshes.cleanup();
 		shader.cleanup();
 		glfwDestroyWindow(window);
 		glfwTerminate();
 	}
 
 	public static void main(String[] args) {
-		new Game3D().run();
+		boolean headless = false;
+		int frames = 0;
+		for (String arg : args) {
+			if (arg.equals("--headless"))
+				headless = true;
+			else if (arg.startsWith("--frames="))
+				frames = Integer.parseInt(arg.substring("--frames=".length()));
+		}
+		new Game3D(headless, frames).run();
 	}
 }
@@ -0,0 +1,171 @@
+package com.audio;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joml.Matrix4fc;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Draws many bodies with one instanced draw call per mesh.
+ *
+ * Between {@link #begin()} and {@link #draw()} instances are collected per
+ * mesh. On draw they are laid out batch after batch in a single instance
+ * VBO, which is orphaned and refilled so the driver never waits on last
+ * frame's data. Each batch is then one glDrawElementsInstancedBaseVertex
+ * with the instance attributes pointed at its part of the buffer. Meshes
+ * from the same {@link MeshPool} share a VAO, so it is bound once per pool
+ * rather than once per mesh. Nothing is allocated per frame once every
+ * mesh has been seen and the buffers have grown.
+ *
+ * Works with any OpenGL 3.3 core context, including Mesa's llvmpipe.
+ */
+public class InstancedRenderer {
+
+    // per instance: mat4 model (column major) then vec4 colour
+    private static final int FLOATS_PER_INSTANCE = 20;
+    private static final int STRIDE = FLOATS_PER_INSTANCE * Float.BYTES;
+
+    private static class Batch {
+        final Mesh mesh;
+        int first; // where this batch starts in the frame's instances
+        int count;
+
+        Batch(Mesh mesh) {
+            this.mesh = mesh;
+        }
+    }
+
+    // batches in the order their mesh was first seen, so draw order is stable
+    private final Map<Mesh, Batch> batches = new HashMap<>();
+    private final List<Batch> order = new ArrayList<>();
+
+    // this frame's instances as added, then regrouped by batch for upload
+    private FloatBuffer added = MemoryUtil.memAllocFloat(256 * FLOATS_PER_INSTANCE);
+    private FloatBuffer grouped = MemoryUtil.memAllocFloat(256 * FLOATS_PER_INSTANCE);
+    private Batch[] addedBatch = new Batch[256];
+    private int instanceCount;
+
+    private final int vbo = glGenBuffers();
+    private long vboBytes;
+    private int drawCalls;
+
+    /** Starts a frame, dropping last frame's instances. */
+    public void begin() {
+        for (int b = 0; b < order.size(); b++)
+            order.get(b).count = 0;
+        added.clear();
+        instanceCount = 0;
+    }
+
+    /** Adds an instance of {@code mesh} translated to (x, y, z). */
+    public void add(Mesh mesh, float x, float y, float z, float[] colour) {
+        FloatBuffer f = reserve(mesh);
+        f.put(1f).put(0f).put(0f).put(0f);
+        f.put(0f).put(1f).put(0f).put(0f);
+        f.put(0f).put(0f).put(1f).put(0f);
+        f.put(x).put(y).put(z).put(1f);
+        f.put(colour[0]).put(colour[1]).put(colour[2]).put(1f);
+    }
+
+    /** Adds an instance of {@code mesh} with a full model matrix. */
+    public void add(Mesh mesh, Matrix4fc model, float[] colour) {
+        FloatBuffer f = reserve(mesh);
+        model.get(f.position(), f);
+        f.position(f.position() + 16);
+        f.put(colour[0]).put(colour[1]).put(colour[2]).put(1f);
+    }
+
+    /** Uploads and draws every mesh that has instances this frame. */
+    public void draw() {
+        drawCalls = 0;
+        if (instanceCount == 0)
+            return;
+
+        // counting sort of the instances by batch
+        int first = 0;
+        for (int b = 0; b < order.size(); b++) {
+            Batch batch = order.get(b);
+            batch.first = first;
+            first += batch.count;
+            batch.count = 0;
+        }
+        if (grouped.capacity() < added.capacity())
+            grouped = MemoryUtil.memRealloc(grouped, added.capacity());
+        long src = MemoryUtil.memAddress(added, 0);
+        long dst = MemoryUtil.memAddress(grouped, 0);
+        for (int i = 0; i < instanceCount; i++) {
+            Batch batch = addedBatch[i];
+            int slot = batch.first + batch.count++;
+            MemoryUtil.memCopy(src + (long) i * STRIDE, dst + (long) slot * STRIDE, STRIDE);
+        }
+        grouped.limit(instanceCount * FLOATS_PER_INSTANCE).position(0);
+
+        long bytes = (long) instanceCount * STRIDE;
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (bytes > vboBytes)
+            vboBytes = Math.max(bytes, vboBytes * 2);
+        // orphan the old storage, then fill the new one
+        glBufferData(GL_ARRAY_BUFFER, vboBytes, GL_STREAM_DRAW);
+        glBufferSubData(GL_ARRAY_BUFFER, 0, grouped);
+
+        MeshPool bound = null;
+        for (int b = 0; b < order.size(); b++) {
+            Batch batch = order.get(b);
+            if (batch.count == 0)
+                continue;
+            MeshPool pool = batch.mesh.getPool();
+            if (pool != bound) {
+                pool.bind();
+                bound = pool;
+            }
+            pool.setInstanceBuffer(vbo, (long) batch.first * STRIDE, STRIDE);
+            batch.mesh.renderInstanced(batch.count);
+            drawCalls++;
+        }
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /** Draw calls issued by the last {@link #draw()}. */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /** Forgets {@code mesh}, e.g. once it has been released. */
+    public void remove(Mesh mesh) {
+        Batch batch = batches.remove(mesh);
+        if (batch != null)
+            order.remove(batch);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(vbo);
+        MemoryUtil.memFree(added);
+        MemoryUtil.memFree(grouped);
+        order.clear();
+        batches.clear();
+    }
+
+    private FloatBuffer reserve(Mesh mesh) {
+        Batch batch = batches.get(mesh);
+        if (batch == null) {
+            batch = new Batch(mesh);
+            batches.put(mesh, batch);
+            order.add(batch);
+        }
+        if (added.remaining() < FLOATS_PER_INSTANCE)
+            added = MemoryUtil.memRealloc(added, added.capacity() * 2);
+        if (instanceCount == addedBatch.length)
+            addedBatch = Arrays.copyOf(addedBatch, instanceCount * 2);
+        addedBatch[instanceCount++] = batch;
+        batch.count++;
+        return added;
+    }
+}
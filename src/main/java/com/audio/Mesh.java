@@ -1,58 +1,43 @@
 package com.audio;
 
-import static org.lwjgl.opengl.GL11C.GL_FLOAT;
-import static org.lwjgl.opengl.GL11C.GL_TRIANGLES;
-import static org.lwjgl.opengl.GL11C.GL_UNSIGNED_INT;
-import static org.lwjgl.opengl.GL11C.glDrawElements;
-import static org.lwjgl.opengl.GL15C.GL_ARRAY_BUFFER;
-import static org.lwjgl.opengl.GL15C.GL_ELEMENT_ARRAY_BUFFER;
-import static org.lwjgl.opengl.GL15C.GL_STATIC_DRAW;
-import static org.lwjgl.opengl.GL15C.glBindBuffer;
-import static org.lwjgl.opengl.GL15C.glBufferData;
-import static org.lwjgl.opengl.GL15C.glDeleteBuffers;
-import static org.lwjgl.opengl.GL15C.glGenBuffers;
-import static org.lwjgl.opengl.GL20C.glEnableVertexAttribArray;
-import static org.lwjgl.opengl.GL20C.glVertexAttribPointer;
-import static org.lwjgl.opengl.GL30C.glBindVertexArray;
-import static org.lwjgl.opengl.GL30C.glDeleteVertexArrays;
-import static org.lwjgl.opengl.GL30C.glGenVertexArrays;
 import static org.lwjgl.opengl.GL33C.*;
-import java.nio.*;
-import java.util.Vector;
 import org.joml.*;
-import org.lwjgl.system.MemoryUtil;
 
+/**
+ * Geometry suballocated from a {@link MeshPool}: a range of the pool's
+ * vertices, drawn with a base vertex, and a range of its indices, 16-bit
+ * when the vertex count allows.
+ *
+ * Meshes are normally obtained from a {@link MeshRegistry}, which shares
+ * them between users of the same shape.
+ */
 public class Mesh {
-    private final int vao, vbo, ebo;
-    private final int indexCount;
+    private final MeshPool pool;
+    final int baseVertex, vertexCount;
+    // index range in the pool's 4-byte allocation units
+    final int firstUnit, indexUnits;
+    final int indexCount;
+    final int indexType; // GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
     public String name;
 
-    private Mesh(float[] vertices, int[] indices, String name) {
-        indexCount = indices.length;
+    Mesh(MeshPool pool, int baseVertex, int vertexCount, int firstUnit, int indexUnits,
+            int indexCount, int indexType, String name) {
+        this.pool = pool;
+        this.baseVertex = baseVertex;
+        this.vertexCount = vertexCount;
+        this.firstUnit = firstUnit;
+        this.indexUnits = indexUnits;
+        this.indexCount = indexCount;
+        this.indexType = indexType;
         this.name = name;
+    }
 
-        vao = glGenVertexArrays();
-        glBindVertexArray(vao);
-
-        // Vertex buffer
-        vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-
-        // Index buffer
-        ebo = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
-
-        // Vertex layout: position (x, y, z)
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 3 * Float.BYTES, 0);
-        glEnableVertexAttribArray(0);
-
-        glBindVertexArray(0);
+    public MeshPool getPool() {
+        return pool;
     }
 
     /** ✅ Creates a cube using indexed faces (8 unique vertices, 36 indices). */
-    public static Mesh createCube(Vector3f size, String name) {
+    public static Mesh createCube(MeshPool pool, Vector3f size, String name) {
         float[] vertices = {
             -size.x, -size.y, -size.z,  // 0
              size.x, -size.y, -size.z,  // 1
@@ -79,11 +64,11 @@ public class Mesh {
             3, 2, 6, 6, 7, 3
         };
 
-        return new Mesh(vertices, indices, name);
+        return pool.add(vertices, indices, name);
     }
 
     /** Minimal placeholder for sphere (can be expanded later). */
-    public static Mesh createSphere(float radius, int slices, int stacks, String name) {
+    public static Mesh createSphere(MeshPool pool, float radius, int slices, int stacks, String name) {
         // Number of vertices
         int vertexCount = (stacks + 1) * (slices + 1);
         float[] vertices = new float[vertexCount * 3];
@@ -128,18 +113,20 @@ public class Mesh {
             }
         }
 
-        return new Mesh(vertices, indices, name);
+        return pool.add(vertices, indices, name);
     }
 
-    public void render() {
-        glBindVertexArray(vao);
-        glDrawElements(GL_TRIANGLES, indexCount, GL_UNSIGNED_INT, 0);
-        glBindVertexArray(0);
+    /**
+     * Draws {@code instances} copies in one call. The pool must be bound and
+     * its instance attributes set; see {@link MeshPool#setInstanceBuffer}.
+     */
+    public void renderInstanced(int instances) {
+        glDrawElementsInstancedBaseVertex(GL_TRIANGLES, indexCount, indexType,
+                (long) firstUnit * Integer.BYTES, instances, baseVertex);
     }
 
+    /** Returns this mesh's geometry to its pool. */
     public void cleanup() {
-        glDeleteBuffers(vbo);
-        glDeleteBuffers(ebo);
-        glDeleteVertexArrays(vao);
+        pool.free(this);
     }
 }
@@ -0,0 +1,92 @@
+package com.audio;
+
+import static org.lwjgl.util.meshoptimizer.MeshOptimizer.*;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Build-time optimisation of indexed triangle meshes with meshoptimizer.
+ *
+ * Triangles are reordered for the post-transform vertex cache and then for
+ * overdraw (allowing the cache hit rate to drop by at most 5%), and
+ * vertices are renumbered in first-use order so fetches walk the vertex
+ * buffer forwards. Unused vertices are dropped.
+ */
+public final class MeshOptimizer {
+
+    // how much worse the vertex cache may get in exchange for less overdraw
+    private static final float OVERDRAW_THRESHOLD = 1.05f;
+
+    /** An optimised mesh: xyz per vertex and triangle indices. */
+    public static final class Result {
+        public final float[] positions;
+        public final int[] indices;
+
+        Result(float[] positions, int[] indices) {
+            this.positions = positions;
+            this.indices = indices;
+        }
+
+        public int vertexCount() {
+            return positions.length / 3;
+        }
+    }
+
+    private MeshOptimizer() {
+    }
+
+    public static Result optimize(float[] positions, int[] indices) {
+        int vertexCount = positions.length / 3;
+        IntBuffer idx = MemoryUtil.memAllocInt(indices.length);
+        FloatBuffer pos = MemoryUtil.memAllocFloat(positions.length);
+        try {
+            idx.put(indices).flip();
+            pos.put(positions).flip();
+
+            // all three passes may work in place
+            meshopt_optimizeVertexCache(idx, idx, vertexCount);
+            meshopt_optimizeOverdraw(idx, idx, pos, vertexCount, 3 * Float.BYTES, OVERDRAW_THRESHOLD);
+            int used = (int) meshopt_optimizeVertexFetch(MemoryUtil.memByteBuffer(pos), idx,
+                    MemoryUtil.memByteBuffer(pos), vertexCount, 3 * Float.BYTES);
+
+            float[] outPositions = new float[used * 3];
+            int[] outIndices = new int[indices.length];
+            pos.get(outPositions);
+            idx.get(outIndices);
+            return new Result(outPositions, outIndices);
+        } finally {
+            MemoryUtil.memFree(idx);
+            MemoryUtil.memFree(pos);
+        }
+    }
+
+    /** True if every index of a mesh with {@code vertexCount} vertices fits in 16 bits. */
+    public static boolean fitsShortIndices(int vertexCount) {
+        return vertexCount <= 0x10000;
+    }
+
+    /** Packs {@code indices} into 16 bits; see {@link #fitsShortIndices}. */
+    public static short[] toShortIndices(int[] indices) {
+        short[] out = new short[indices.length];
+        for (int i = 0; i < indices.length; i++)
+            out[i] = (short) indices[i];
+        return out;
+    }
+
+    /** Converts xyz positions to half floats, padded to xyzw with w = 1 for 8-byte vertices. */
+    public static short[] toHalfPositions(float[] positions) {
+        int n = positions.length / 3;
+        short[] out = new short[n * 4];
+        short one = meshopt_quantizeHalf(1f);
+        for (int v = 0; v < n; v++) {
+            out[v * 4] = meshopt_quantizeHalf(positions[v * 3]);
+            out[v * 4 + 1] = meshopt_quantizeHalf(positions[v * 3 + 1]);
+            out[v * 4 + 2] = meshopt_quantizeHalf(positions[v * 3 + 2]);
+            out[v * 4 + 3] = one;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,243 @@
+package com.audio;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Large shared vertex and index buffers that meshes are suballocated from.
+ *
+ * Every mesh in a pool lives in the same VBO/EBO behind one VAO and is drawn
+ * with a base vertex and an index offset, so consecutive draws need no VAO
+ * rebinds. Both buffers grow by doubling (copied on the GPU) and freed
+ * ranges are reused first-fit, merged with their free neighbours.
+ *
+ * Geometry is run through {@link MeshOptimizer} on the way in. Indices are
+ * stored as 16-bit when the mesh's vertex count allows and 32-bit
+ * otherwise; both widths share the index buffer, allocated in 4-byte
+ * units so 32-bit indices stay aligned. A pool created with
+ * {@code halfPositions} stores positions as four half floats (8 bytes per
+ * vertex instead of 12).
+ *
+ * The VAO also carries the per-instance attributes used by
+ * {@link InstancedRenderer}: a mat4 model matrix in locations 1-4 and a
+ * vec4 colour in location 5. They stay enabled, so meshes in a pool are
+ * only drawn instanced, with an instance buffer set.
+ */
+public class MeshPool {
+
+    // the index buffer is allocated in units of this many bytes
+    private static final int INDEX_UNIT = Integer.BYTES;
+
+    private final boolean halfPositions;
+    private final int vertexBytes;
+    private final int vao;
+    private int vbo, ebo;
+    private final Ranges vertices, indices;
+
+    public MeshPool() {
+        this(false);
+    }
+
+    public MeshPool(boolean halfPositions) {
+        this(halfPositions, 16 * 1024, 32 * 1024);
+    }
+
+    /** Capacities are in vertices and in 4-byte index units; both grow on demand. */
+    public MeshPool(boolean halfPositions, int vertexCapacity, int indexCapacity) {
+        this.halfPositions = halfPositions;
+        vertexBytes = halfPositions ? 4 * Short.BYTES : 3 * Float.BYTES;
+        vertices = new Ranges(vertexCapacity);
+        indices = new Ranges(indexCapacity);
+
+        vao = glGenVertexArrays();
+        glBindVertexArray(vao);
+        vbo = createBuffer(GL_ARRAY_BUFFER, (long) vertexCapacity * vertexBytes);
+        ebo = createBuffer(GL_ELEMENT_ARRAY_BUFFER, (long) indexCapacity * INDEX_UNIT);
+        setPositionPointer();
+        glEnableVertexAttribArray(0);
+        for (int attrib = 1; attrib <= 5; attrib++) {
+            glEnableVertexAttribArray(attrib);
+            glVertexAttribDivisor(attrib, 1);
+        }
+        glBindVertexArray(0);
+    }
+
+    public boolean hasHalfPositions() {
+        return halfPositions;
+    }
+
+    /**
+     * Optimises {@code vertexData} (xyz per vertex) and {@code indexData}
+     * and copies them into the pool.
+     */
+    public Mesh add(float[] vertexData, int[] indexData, String name) {
+        MeshOptimizer.Result optimized = MeshOptimizer.optimize(vertexData, indexData);
+        int vertexCount = optimized.vertexCount();
+        int indexCount = optimized.indices.length;
+        boolean shortIndices = MeshOptimizer.fitsShortIndices(vertexCount);
+        int indexBytes = indexCount * (shortIndices ? Short.BYTES : Integer.BYTES);
+        int indexUnits = (indexBytes + INDEX_UNIT - 1) / INDEX_UNIT;
+
+        int baseVertex = vertices.allocate(vertexCount);
+        if (baseVertex < 0) {
+            growVertices(vertexCount);
+            baseVertex = vertices.allocate(vertexCount);
+        }
+        int firstUnit = indices.allocate(indexUnits);
+        if (firstUnit < 0) {
+            growIndices(indexUnits);
+            firstUnit = indices.allocate(indexUnits);
+        }
+
+        long vertexOffset = (long) baseVertex * vertexBytes;
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (halfPositions)
+            glBufferSubData(GL_ARRAY_BUFFER, vertexOffset, MeshOptimizer.toHalfPositions(optimized.positions));
+        else
+            glBufferSubData(GL_ARRAY_BUFFER, vertexOffset, optimized.positions);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        // the element buffer binding is VAO state
+        long indexOffset = (long) firstUnit * INDEX_UNIT;
+        glBindVertexArray(vao);
+        if (shortIndices)
+            glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, indexOffset, MeshOptimizer.toShortIndices(optimized.indices));
+        else
+            glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, indexOffset, optimized.indices);
+        glBindVertexArray(0);
+
+        return new Mesh(this, baseVertex, vertexCount, firstUnit, indexUnits, indexCount,
+                shortIndices ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT, name);
+    }
+
+    /** Returns a mesh's ranges to the pool. */
+    void free(Mesh mesh) {
+        vertices.free(mesh.baseVertex, mesh.vertexCount);
+        indices.free(mesh.firstUnit, mesh.indexUnits);
+    }
+
+    /** Binds the pool's VAO; meshes drawn from it afterwards need no other binding. */
+    public void bind() {
+        glBindVertexArray(vao);
+    }
+
+    /**
+     * Points the per-instance attributes at {@code instanceVbo}, starting at
+     * byte {@code offset}. The pool's VAO must be bound.
+     */
+    public void setInstanceBuffer(int instanceVbo, long offset, int stride) {
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        for (int column = 0; column < 4; column++)
+            glVertexAttribPointer(1 + column, 4, GL_FLOAT, false, stride, offset + column * 4L * Float.BYTES);
+        glVertexAttribPointer(5, 4, GL_FLOAT, false, stride, offset + 16L * Float.BYTES);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(vbo);
+        glDeleteBuffers(ebo);
+        glDeleteVertexArrays(vao);
+    }
+
+    // -------------------------------------------------------------
+    // Growth
+    // -------------------------------------------------------------
+
+    private void growVertices(int needed) {
+        int oldCapacity = vertices.capacity;
+        vertices.grow(needed);
+        vbo = copyBuffer(vbo, (long) oldCapacity * vertexBytes, (long) vertices.capacity * vertexBytes);
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        setPositionPointer();
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    private void growIndices(int needed) {
+        int oldCapacity = indices.capacity;
+        indices.grow(needed);
+        ebo = copyBuffer(ebo, (long) oldCapacity * INDEX_UNIT, (long) indices.capacity * INDEX_UNIT);
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        glBindVertexArray(0);
+    }
+
+    // attribute 0 from the bound VBO; half positions carry a w of 1 the shader ignores
+    private void setPositionPointer() {
+        if (halfPositions)
+            glVertexAttribPointer(0, 4, GL_HALF_FLOAT, false, vertexBytes, 0);
+        else
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, vertexBytes, 0);
+    }
+
+    private static int createBuffer(int target, long bytes) {
+        int buffer = glGenBuffers();
+        glBindBuffer(target, buffer);
+        glBufferData(target, bytes, GL_STATIC_DRAW);
+        return buffer;
+    }
+
+    private static int copyBuffer(int old, long oldBytes, long newBytes) {
+        int buffer = createBuffer(GL_COPY_WRITE_BUFFER, newBytes);
+        glBindBuffer(GL_COPY_READ_BUFFER, old);
+        glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0, 0, oldBytes);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        glDeleteBuffers(old);
+        return buffer;
+    }
+
+    /** First-fit allocator over [0, capacity), in elements. */
+    private static class Ranges {
+        // free ranges sorted by start, never adjacent to each other
+        private final List<int[]> free = new ArrayList<>();
+        int capacity;
+
+        Ranges(int capacity) {
+            this.capacity = capacity;
+            free.add(new int[] { 0, capacity });
+        }
+
+        /** Start of a free range of {@code n} elements, or -1 if none is big enough. */
+        int allocate(int n) {
+            for (int i = 0; i < free.size(); i++) {
+                int[] r = free.get(i);
+                if (r[1] < n)
+                    continue;
+                int start = r[0];
+                r[0] += n;
+                r[1] -= n;
+                if (r[1] == 0)
+                    free.remove(i);
+                return start;
+            }
+            return -1;
+        }
+
+        void free(int start, int n) {
+            int i = 0;
+            while (i < free.size() && free.get(i)[0] < start)
+                i++;
+            int[] r = { start, n };
+            free.add(i, r);
+            // merge with the next range, then the previous one
+            if (i + 1 < free.size() && start + n == free.get(i + 1)[0]) {
+                r[1] += free.get(i + 1)[1];
+                free.remove(i + 1);
+            }
+            if (i > 0 && free.get(i - 1)[0] + free.get(i - 1)[1] == start) {
+                free.get(i - 1)[1] += r[1];
+                free.remove(i);
+            }
+        }
+
+        /** Doubles the capacity until a range of {@code n} fits at the end. */
+        void grow(int n) {
+            int oldCapacity = capacity;
+            while (capacity < oldCapacity + n)
+                capacity *= 2;
+            free(oldCapacity, capacity - oldCapacity);
+        }
+    }
+}
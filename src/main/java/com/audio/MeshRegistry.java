@@ -0,0 +1,94 @@
+package com.audio;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joml.Vector3f;
+
+/**
+ * Shared, reference-counted meshes keyed by their shape parameters.
+ *
+ * Asking twice for the same cube or sphere returns the same {@link Mesh};
+ * every {@code cube}/{@code sphere} call must be matched by a
+ * {@link #release}, and the geometry goes back to the pool when the last
+ * user releases it. All meshes come from one {@link MeshPool}.
+ */
+public class MeshRegistry {
+
+    private static class Entry {
+        final String key;
+        final Mesh mesh;
+        int refs;
+
+        Entry(String key, Mesh mesh) {
+            this.key = key;
+            this.mesh = mesh;
+        }
+    }
+
+    private final MeshPool pool;
+    private final Map<String, Entry> byKey = new HashMap<>();
+    private final Map<Mesh, Entry> byMesh = new HashMap<>();
+
+    public MeshRegistry() {
+        this(new MeshPool());
+    }
+
+    public MeshRegistry(MeshPool pool) {
+        this.pool = pool;
+    }
+
+    public MeshPool getPool() {
+        return pool;
+    }
+
+    /** A cube with half extents {@code size}. */
+    public Mesh cube(Vector3f size) {
+        String key = "cube " + size.x + " " + size.y + " " + size.z;
+        Entry e = byKey.get(key);
+        if (e == null)
+            e = register(key, Mesh.createCube(pool, size, "Cube " + size.x + "x" + size.y + "x" + size.z));
+        e.refs++;
+        return e.mesh;
+    }
+
+    public Mesh sphere(float radius, int slices, int stacks) {
+        String key = "sphere " + radius + " " + slices + " " + stacks;
+        Entry e = byKey.get(key);
+        if (e == null)
+            e = register(key, Mesh.createSphere(pool, radius, slices, stacks, "Sphere r" + radius + " " + slices + "x" + stacks));
+        e.refs++;
+        return e.mesh;
+    }
+
+    /** Drops one reference to {@code mesh}, freeing it when none remain. */
+    public void release(Mesh mesh) {
+        Entry e = byMesh.get(mesh);
+        if (e == null)
+            throw new IllegalArgumentException("Mesh not from this registry: " + mesh.name);
+        if (--e.refs > 0)
+            return;
+        byKey.remove(e.key);
+        byMesh.remove(mesh);
+        mesh.cleanup();
+    }
+
+    /** Number of distinct meshes currently shared. */
+    public int size() {
+        return byKey.size();
+    }
+
+    /** Frees every mesh and the pool, whatever their reference counts. */
+    public void cleanup() {
+        byKey.clear();
+        byMesh.clear();
+        pool.cleanup();
+    }
+
+    private Entry register(String key, Mesh mesh) {
+        Entry e = new Entry(key, mesh);
+        byKey.put(key, e);
+        byMesh.put(mesh, e);
+        return e;
+    }
+}
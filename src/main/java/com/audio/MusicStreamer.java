@@ -1,43 +1,86 @@
 package com.audio;
 
-import org.lwjgl.openal.AL10;
-import org.lwjgl.openal.ALC10;
 import org.lwjgl.openal.AL;
 import org.lwjgl.openal.ALC;
-import org.lwjgl.stb.STBVorbis;
 import org.lwjgl.stb.STBVorbisInfo;
-import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
-import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.AL_SAMPLE_OFFSET;
 import static org.lwjgl.openal.ALC10.*;
 import static org.lwjgl.stb.STBVorbis.*;
-import static org.lwjgl.system.MemoryStack.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
+/**
+ * Streams an OGG file through a queue of OpenAL buffers.
+ *
+ * A decoder runs ahead of playback, decoding into a fixed pool of
+ * reusable PCM chunks shared with the feeder through a {@link PcmRing}.
+ * The feeder only copies ready chunks into the OpenAL buffers the source
+ * has finished with, so decoding never stalls the queue and nothing is
+ * allocated while playing.
+ *
+ * Streams are normally driven by a {@link StreamScheduler}, which feeds
+ * and decodes every stream from two shared threads
+ * ({@link #playAsync()}). {@link #streamLoop()} instead plays one stream
+ * to the end on the calling thread, with a decoder thread of its own.
+ *
+ * Looping seeks back to the start of the stream inside the decoder, so
+ * the loop point is gapless and the file is opened once. When the source
+ * runs dry and stops (an underrun) the decode-ahead depth doubles, and it
+ * shrinks again by one chunk after a long stretch without underruns.
+ *
+ * Runs unchanged on OpenAL Soft's null or wave output backends
+ * ({@code ALSOFT_DRIVERS=null}), e.g. to check for underruns headless.
+ */
 public class MusicStreamer {
 
   private static final int BUFFER_COUNT = 4; // number of OpenAL buffers
   private static final int BUFFER_SAMPLES = 4096; // samples per buffer
 
-  private long device;
-  private long context;
+  // decode-ahead, in chunks of BUFFER_SAMPLES: starting depth and ring size
+  private static final int INITIAL_DEPTH = 8;
+  private static final int MAX_DEPTH = 64;
+  // chunks played without an underrun before the depth shrinks by one
+  private static final int STABLE_CHUNKS = 512;
+
   private int source;
   private int[] buffers;
 
-  private long vorbis;
+  private long vorbis = NULL;
   private STBVorbisInfo info;
   private IntBuffer error;
 
   private int format;
   private int sampleRate;
+  private int channels;
   private String filename;
 
-  private boolean looping = true; // toggle looping playback
+  private volatile boolean looping = true; // toggle looping playback
+
+  // the chunks decoded ahead, and the thread decoding them: our own for
+  // streamLoop(), or a scheduler's shared decoder
+  private PcmRing ring;
+  private volatile Thread decoder;
+  private boolean ownDecoder;
+  private volatile boolean decoding;
+  private volatile boolean endOfStream;
+
+  // the scheduler playing this stream, which then owns its cleanup
+  volatile StreamScheduler scheduler;
+  private final CountDownLatch freed = new CountDownLatch(1);
+
+  // OpenAL buffers unqueued but not yet refilled, because the ring was empty
+  private int[] idle;
+  private int idleCount;
+
+  private volatile int underruns;
+  private int stableChunks;
 
   // ----------------------------------------------------
   // INITIALIZATION
@@ -60,7 +103,8 @@ public class MusicStreamer {
     stb_vorbis_get_info(vorbis, info);
 
     sampleRate = info.sample_rate();
-    format = (info.channels() == 1) ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
+    channels = info.channels();
+    format = (channels == 1) ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
 
     // === OpenAL source + buffers ===
     source = alGenSources();
@@ -68,122 +112,230 @@ public class MusicStreamer {
     for (int i = 0; i < BUFFER_COUNT; i++) {
       buffers[i] = alGenBuffers();
     }
+    idle = new int[BUFFER_COUNT];
+
+    // === Decode-ahead ring, primed on this thread ===
+    ring = new PcmRing(MAX_DEPTH, BUFFER_SAMPLES * channels, INITIAL_DEPTH);
+    decodeAhead();
 
     // Preload initial buffers
     for (int buf : buffers) {
-      ShortBuffer data = decodeChunk();
-      if (data == null)
-        break;
-      alBufferData(buf, format, data, sampleRate);
-      MemoryUtil.memFree(data);
+      if (!fill(buf))
+        idle[idleCount++] = buf;
+      else
+        alSourceQueueBuffers(source, buf);
     }
-    alSourceQueueBuffers(source, buffers);
   }
 
   // ----------------------------------------------------
   // MAIN STREAMING LOOP
   // ----------------------------------------------------
+
+  /** Plays the stream to the end on this thread. */
   public void streamLoop() {
-    boolean playing = true;
+    startDecoder();
+    start(decoder);
+    long wait;
+    while ((wait = service()) >= 0)
+      LockSupport.parkNanos(wait);
+    stopDecoder();
+    System.out.println("Music stream ended.");
+  }
 
+  /** Starts playback; {@code decoderThread} is unparked whenever the ring runs low. */
+  void start(Thread decoderThread) {
+    decoder = decoderThread;
     alSourcePlay(source);
+  }
 
-    while (playing) {
-      int processed = alGetSourcei(source, AL_BUFFERS_PROCESSED);
-
-      while (processed-- > 0) {
-        int buf = alSourceUnqueueBuffers(source);
-
-        ShortBuffer data = decodeChunk();
-
-        // If EOF reached or temporary decode gap
-        if (data == null) {
-          if (looping) {
-            // Reopen file for looping
-            stb_vorbis_close(vorbis);
-            vorbis = stb_vorbis_open_filename(filename, error, null);
-            if (vorbis == NULL) {
-              System.err.println("Failed to reopen OGG for looping.");
-              playing = false;
-              break;
-            }
-            stb_vorbis_get_info(vorbis, info);
-            data = decodeChunk();
-            if (data == null)
-              continue;
-          } else {
-            playing = false;
-            break;
-          }
-        }
-
-        alBufferData(buf, format, data, sampleRate);
-        MemoryUtil.memFree(data);
-        alSourceQueueBuffers(source, buf);
-      }
-
-      // Restart playback if it stopped unexpectedly
-      int state = alGetSourcei(source, AL_SOURCE_STATE);
-      if (state != AL_PLAYING && playing) {
-        alSourcePlay(source);
-      }
+  /**
+   * Refills and requeues every buffer the source has finished with.
+   *
+   * @return nanoseconds until the source is next predicted to finish a
+   *         buffer, or -1 once the stream has ended and been stopped
+   */
+  long service() {
+    // a streaming source only stops by itself when every queued buffer has played
+    int state = alGetSourcei(source, AL_SOURCE_STATE);
+    int processed = alGetSourcei(source, AL_BUFFERS_PROCESSED);
+    while (processed-- > 0)
+      idle[idleCount++] = alSourceUnqueueBuffers(source);
+
+    // refill everything the source has finished with
+    while (idleCount > 0 && fill(idle[idleCount - 1]))
+      alSourceQueueBuffers(source, idle[--idleCount]);
+
+    int queued = alGetSourcei(source, AL_BUFFERS_QUEUED);
+    if (queued == 0 && endOfStream && ring.size() == 0) {
+      alSourceStop(source);
+      return -1;
+    }
 
-      try {
-        Thread.sleep(10);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-      }
+    // Restart playback if it ran dry, and decode further ahead from now on
+    if (state != AL_PLAYING && queued > 0) {
+      underruns++;
+      stableChunks = 0;
+      ring.setDepth(ring.getDepth() * 2);
+      alSourcePlay(source);
     }
 
-    alSourceStop(source);
-    System.out.println("Music stream ended.");
+    // check back soon while starving, otherwise when the current buffer drains
+    long bufferNanos = 1_000_000_000L * BUFFER_SAMPLES / sampleRate;
+    if (idleCount > 0 || queued == 0)
+      return bufferNanos / 8;
+    int offset = Math.min(alGetSourcei(source, AL_SAMPLE_OFFSET), BUFFER_SAMPLES);
+    return Math.max(bufferNanos / 16, 1_000_000_000L * (BUFFER_SAMPLES - offset) / sampleRate);
+  }
+
+  /** Copies the next decoded chunk into {@code buf}; false if none is ready. */
+  private boolean fill(int buf) {
+    ShortBuffer chunk = ring.peek();
+    if (chunk == null)
+      return false;
+    alBufferData(buf, format, chunk, sampleRate);
+    ring.release();
+    // wake the decoder once half the decode-ahead is gone, not per chunk
+    if (ring.size() < ring.getDepth() / 2)
+      LockSupport.unpark(decoder);
+
+    if (++stableChunks >= STABLE_CHUNKS) {
+      stableChunks = 0;
+      ring.setDepth(Math.max(INITIAL_DEPTH, ring.getDepth() - 1));
+    }
+    return true;
   }
 
   // ----------------------------------------------------
   // DECODING
   // ----------------------------------------------------
-  private ShortBuffer decodeChunk() {
-    int channels = info.channels();
-    ShortBuffer pcm = MemoryUtil.memAllocShort(BUFFER_SAMPLES * channels);
-    int total = 0;
+  private void startDecoder() {
+    if (decoder != null)
+      return;
+    decoding = true;
+    ownDecoder = true;
+    decoder = new Thread(this::decodeLoop, "music-decoder");
+    decoder.setDaemon(true);
+    decoder.start();
+  }
 
+  private void stopDecoder() {
+    if (!ownDecoder)
+      return;
+    decoding = false;
+    LockSupport.unpark(decoder);
+    try {
+      decoder.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    decoder = null;
+    ownDecoder = false;
+  }
+
+  private void decodeLoop() {
+    while (decoding && !endOfStream) {
+      if (!decodeNext()) {
+        // ring full: the feeder unparks us when it runs low
+        LockSupport.parkNanos(50_000_000L);
+      }
+    }
+  }
+
+  /** Decodes until the ring is full or the stream ends; true if anything was decoded. */
+  boolean decodeAhead() {
+    boolean decoded = false;
+    while (!endOfStream && decodeNext())
+      decoded = true;
+    return decoded;
+  }
+
+  /**
+   * Decodes one chunk into the ring, looping back to the start at the end
+   * of the stream. Returns false if the ring has no free chunk.
+   */
+  private boolean decodeNext() {
+    ShortBuffer chunk = ring.beginWrite();
+    if (chunk == null)
+      return false;
+
+    int total = 0;
+    boolean rewound = false;
+    boolean ended = false;
     while (total < BUFFER_SAMPLES) {
-      int n = stb_vorbis_get_samples_short_interleaved(vorbis, channels, pcm.position(total * channels));
-      if (n <= 0)
-        break; // EOF
-      total += n;
+      chunk.position(total * channels);
+      int n = stb_vorbis_get_samples_short_interleaved(vorbis, channels, chunk);
+      if (n > 0) {
+        total += n;
+        rewound = false;
+        continue;
+      }
+      // end of stream; a rewind that decodes nothing means the file is empty
+      if (!looping || rewound) {
+        ended = true;
+        break;
+      }
+      stb_vorbis_seek_start(vorbis);
+      rewound = true;
     }
 
-    pcm.limit(total * channels);
-    if (total == 0) {
-      MemoryUtil.memFree(pcm);
-      return null;
+    if (total > 0) {
+      chunk.position(0).limit(total * channels);
+      ring.endWrite();
     }
-    return pcm;
+    // only after the last chunk is published, or the feeder may stop short of it
+    if (ended)
+      endOfStream = true;
+    return true;
   }
 
   // ----------------------------------------------------
   // CLEANUP
   // ----------------------------------------------------
+  /**
+   * Stops the stream and frees it. A stream playing on a
+   * {@link StreamScheduler} is stopped there and freed on its decode
+   * thread; this waits until that is done.
+   */
   public void cleanup() {
+    StreamScheduler owner = scheduler;
+    if (owner == null) {
+      free();
+      return;
+    }
+    owner.stop(this);
+    try {
+      freed.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Frees the stream; only from the thread that decodes it, once it has stopped. */
+  void free() {
+    stopDecoder();
+    if (vorbis == NULL) {
+      freed.countDown();
+      return;
+    }
     alSourceStop(source);
     alDeleteSources(source);
     for (int buf : buffers)
       alDeleteBuffers(buf);
     stb_vorbis_close(vorbis);
+    vorbis = NULL;
     info.free();
     MemoryUtil.memFree(error);
-    alcDestroyContext(context);
-    alcCloseDevice(device);
+    ring.free();
+    freed.countDown();
   }
 
+  /** Plays on the shared {@link StreamScheduler}; cleaned up when it ends. */
   public void playAsync() {
-    Thread streamThread = new Thread(() -> {
-      streamLoop();
-      cleanup(); // optional auto-cleanup when done
-    });
-    streamThread.setDaemon(true); // optional — stops when game exits
-    streamThread.start();
+    playAsync(StreamScheduler.getDefault());
+  }
+
+  public void playAsync(StreamScheduler scheduler) {
+    scheduler.play(this);
   }
 
   // ----------------------------------------------------
@@ -193,5 +345,57 @@ public class MusicStreamer {
     this.looping = loop;
   }
 
+  /** Times the source ran out of decoded audio. */
+  public int getUnderruns() {
+    return underruns;
+  }
+
+  /** Current decode-ahead depth, in chunks of {@value #BUFFER_SAMPLES} samples. */
+  public int getBufferDepth() {
+    return ring.getDepth();
+  }
+
+  public String getFilename() {
+    return filename;
+  }
+
+  // ----------------------------------------------------
+  // HEADLESS CHECK
+  // ----------------------------------------------------
 
+  /**
+   * Plays a clip on the default scheduler and reports underruns and the
+   * decode-ahead depth once a second. Run with {@code ALSOFT_DRIVERS=null}
+   * (or {@code wave}) in the environment to check streaming headless.
+   *
+   * Arguments: {@code [file] [--seconds=N]}, default the game's music for 10 s.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    String file = "assets/music/music.ogg";
+    int seconds = 10;
+    for (String arg : args) {
+      if (arg.startsWith("--seconds="))
+        seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+      else
+        file = arg;
+    }
+
+    AudioSystem audio = new AudioSystem();
+    audio.init();
+    MusicStreamer stream = new MusicStreamer();
+    stream.init(audio, file);
+    stream.setLooping(true);
+    stream.playAsync();
+    for (int s = 1; s <= seconds; s++) {
+      Thread.sleep(1000);
+      System.out.println(s + "s: underruns " + stream.getUnderruns() + ", depth " + stream.getBufferDepth());
+    }
+    int underruns = stream.getUnderruns();
+    int depth = stream.getBufferDepth();
+    stream.cleanup();
+    audio.destroy();
+    System.out.println(file + ": " + underruns + " underruns in " + seconds + "s, final depth " + depth);
+    if (underruns > 0)
+      System.exit(1);
+  }
 }
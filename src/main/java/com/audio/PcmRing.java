@@ -0,0 +1,99 @@
+package com.audio;
+
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Lock-free single-producer, single-consumer ring of reusable PCM chunks.
+ *
+ * Every chunk is allocated off-heap once, up front. The decoder fills the
+ * chunk returned by {@link #beginWrite()} and publishes it with
+ * {@link #endWrite()}; the feeder reads {@link #peek()} and hands the chunk
+ * back with {@link #release()}. Only the ring's two counters are shared.
+ *
+ * At most {@link #getDepth()} chunks are in flight, so decode-ahead can be
+ * tuned below the ring's capacity while it plays.
+ */
+class PcmRing {
+
+  private final ShortBuffer[] chunks;
+  private final int mask;
+
+  // chunks written and chunks released since the start; the difference is the fill
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private volatile int depth;
+
+  /** {@code capacity} is rounded up to a power of two. */
+  PcmRing(int capacity, int shortsPerChunk, int depth) {
+    int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    chunks = new ShortBuffer[cap];
+    for (int i = 0; i < cap; i++)
+      chunks[i] = MemoryUtil.memAllocShort(shortsPerChunk);
+    mask = cap - 1;
+    setDepth(depth);
+  }
+
+  int capacity() {
+    return chunks.length;
+  }
+
+  int getDepth() {
+    return depth;
+  }
+
+  void setDepth(int depth) {
+    this.depth = Math.max(1, Math.min(depth, chunks.length));
+  }
+
+  /** Chunks ready for the consumer. */
+  int size() {
+    return (int) (head.get() - tail.get());
+  }
+
+  // ----------------------------------------------------
+  // PRODUCER
+  // ----------------------------------------------------
+
+  /** A cleared chunk to fill, or null while {@link #getDepth()} chunks are queued. */
+  ShortBuffer beginWrite() {
+    long h = head.get();
+    if (h - tail.get() >= depth)
+      return null;
+    ShortBuffer chunk = chunks[(int) h & mask];
+    chunk.clear();
+    return chunk;
+  }
+
+  /** Publishes the chunk from {@link #beginWrite()}; its position..limit is the PCM. */
+  void endWrite() {
+    head.lazySet(head.get() + 1);
+  }
+
+  // ----------------------------------------------------
+  // CONSUMER
+  // ----------------------------------------------------
+
+  /** The oldest published chunk, or null if none is ready. */
+  ShortBuffer peek() {
+    long t = tail.get();
+    if (t == head.get())
+      return null;
+    return chunks[(int) t & mask];
+  }
+
+  /** Hands the chunk from {@link #peek()} back to the producer. */
+  void release() {
+    tail.lazySet(tail.get() + 1);
+  }
+
+  // ----------------------------------------------------
+  // CLEANUP
+  // ----------------------------------------------------
+  void free() {
+    for (ShortBuffer chunk : chunks)
+      MemoryUtil.memFree(chunk);
+  }
+}
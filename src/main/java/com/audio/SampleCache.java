@@ -0,0 +1,241 @@
+package com.audio;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.stb.STBVorbis.*;
+import static org.lwjgl.system.MemoryStack.stackPush;
+
+/**
+ * Decoded sound clips in OpenAL buffers, shared by path.
+ *
+ * Every {@link #acquire} of a path returns the same {@link Sample} until
+ * it is evicted; each must be matched by a {@link #release}. The cache
+ * tracks the PCM bytes held in AL buffers against a budget, and when over
+ * it deletes the least recently acquired clips that nobody holds. Clips
+ * in use are never evicted, so the budget can be exceeded while they are.
+ *
+ * A {@link VoicePool} plays raw buffer ids and holds no reference, so an
+ * evicted buffer may still be attached to a source, and OpenAL refuses to
+ * delete it. Such buffers are retried on later calls and count against
+ * the budget until they are gone.
+ *
+ * {@link #preload} decodes on a background thread; the AL upload happens
+ * on the audio thread, at the next {@link #acquire} of that path or
+ * {@link #uploadPreloaded()}.
+ */
+public class SampleCache {
+
+  private static SampleCache defaultCache;
+
+  /** One decoded clip in an AL buffer. */
+  public static final class Sample {
+    public final String path;
+    public final int bufferId;
+    public final int bytes;
+    public final float duration; // seconds
+    private int refs;
+
+    private Sample(String path, int bufferId, int bytes, float duration) {
+      this.path = path;
+      this.bufferId = bufferId;
+      this.bytes = bytes;
+      this.duration = duration;
+    }
+  }
+
+  /** PCM decoded off the audio thread, waiting to be uploaded. */
+  private static final class Decoded {
+    final ShortBuffer pcm;
+    final int channels;
+    final int sampleRate;
+
+    Decoded(ShortBuffer pcm, int channels, int sampleRate) {
+      this.pcm = pcm;
+      this.channels = channels;
+      this.sampleRate = sampleRate;
+    }
+  }
+
+  // in access order, least recently used first
+  private final LinkedHashMap<String, Sample> samples = new LinkedHashMap<>(16, 0.75f, true);
+  // evicted, but still attached to a source when we tried to delete them
+  private final List<Sample> undeleted = new ArrayList<>();
+  private final Map<String, CompletableFuture<Decoded>> preloads = new ConcurrentHashMap<>();
+  private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "sample-preload");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private long budgetBytes;
+  private long residentBytes;
+
+  public SampleCache(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+  }
+
+  /** The cache used by {@link Sound#Sound(String)}, with a 64 MB budget. */
+  public static synchronized SampleCache getDefault() {
+    if (defaultCache == null)
+      defaultCache = new SampleCache(64L * 1024 * 1024);
+    return defaultCache;
+  }
+
+  public synchronized void setBudget(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+    evict();
+  }
+
+  /** PCM bytes currently held in AL buffers. */
+  public synchronized long getResidentBytes() {
+    return residentBytes;
+  }
+
+  public synchronized int size() {
+    return samples.size();
+  }
+
+  /**
+   * The clip at {@code path}, decoded and uploaded if it is not cached.
+   * Call on the thread that owns the audio context.
+   */
+  public synchronized Sample acquire(String path) {
+    Sample sample = samples.get(path);
+    if (sample == null) {
+      CompletableFuture<Decoded> pending = preloads.remove(path);
+      Decoded decoded = pending != null ? pending.join() : decode(path);
+      sample = upload(path, decoded);
+      samples.put(path, sample);
+      residentBytes += sample.bytes;
+      evict();
+    }
+    sample.refs++;
+    return sample;
+  }
+
+  /** Drops one reference; the clip stays cached until the budget needs the room. */
+  public synchronized void release(Sample sample) {
+    if (sample.refs > 0)
+      sample.refs--;
+    evict();
+  }
+
+  /** Starts decoding {@code path} in the background; completes when it is decoded. */
+  public synchronized CompletableFuture<Void> preload(String path) {
+    if (samples.containsKey(path))
+      return CompletableFuture.completedFuture(null);
+    return preloads.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> decode(p), decoder))
+        .thenApply(decoded -> null);
+  }
+
+  /** Uploads every finished preload. Call on the thread that owns the audio context. */
+  public synchronized void uploadPreloaded() {
+    Iterator<Map.Entry<String, CompletableFuture<Decoded>>> it = preloads.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, CompletableFuture<Decoded>> e = it.next();
+      if (!e.getValue().isDone())
+        continue;
+      it.remove();
+      if (e.getValue().isCompletedExceptionally())
+        continue;
+      if (samples.containsKey(e.getKey())) {
+        MemoryUtil.memFree(e.getValue().join().pcm);
+        continue;
+      }
+      Sample sample = upload(e.getKey(), e.getValue().join());
+      samples.put(e.getKey(), sample);
+      residentBytes += sample.bytes;
+    }
+    evict();
+  }
+
+  /** Deletes every cached buffer, in use or not, and stops the preload thread. */
+  public synchronized void cleanup() {
+    decoder.shutdownNow();
+    for (Sample sample : samples.values())
+      alDeleteBuffers(sample.bufferId);
+    samples.clear();
+    for (Sample sample : undeleted)
+      alDeleteBuffers(sample.bufferId);
+    undeleted.clear();
+    residentBytes = 0;
+    for (CompletableFuture<Decoded> pending : preloads.values())
+      pending.thenAccept(decoded -> MemoryUtil.memFree(decoded.pcm));
+    preloads.clear();
+  }
+
+  // ----------------------------------------------------
+  // INTERNALS
+  // ----------------------------------------------------
+
+  private void evict() {
+    for (int i = undeleted.size() - 1; i >= 0; i--) {
+      if (delete(undeleted.get(i)))
+        undeleted.remove(i);
+    }
+    Iterator<Sample> it = samples.values().iterator();
+    while (residentBytes > budgetBytes && it.hasNext()) {
+      Sample sample = it.next();
+      if (sample.refs > 0)
+        continue;
+      it.remove();
+      if (!delete(sample))
+        undeleted.add(sample);
+    }
+  }
+
+  /** Deletes the clip's buffer; false if OpenAL refused because a source still uses it. */
+  private boolean delete(Sample sample) {
+    alGetError();
+    alDeleteBuffers(sample.bufferId);
+    if (alGetError() != AL_NO_ERROR)
+      return false;
+    residentBytes -= sample.bytes;
+    return true;
+  }
+
+  private static Decoded decode(String path) {
+    try (MemoryStack stack = stackPush()) {
+      IntBuffer channelsBuffer = stack.mallocInt(1);
+      IntBuffer sampleRateBuffer = stack.mallocInt(1);
+
+      // Decode the OGG file into PCM data
+      ShortBuffer pcm = stb_vorbis_decode_filename(path, channelsBuffer, sampleRateBuffer);
+      if (pcm == null) {
+        throw new RuntimeException("Failed to load sound file: " + path);
+      }
+      int channels = channelsBuffer.get(0);
+      if (channels != 1 && channels != 2) {
+        MemoryUtil.memFree(pcm);
+        throw new RuntimeException("Unsupported number of channels: " + channels);
+      }
+      return new Decoded(pcm, channels, sampleRateBuffer.get(0));
+    }
+  }
+
+  private static Sample upload(String path, Decoded decoded) {
+    int format = decoded.channels == 1 ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
+    int bytes = decoded.pcm.remaining() * Short.BYTES;
+    float duration = (float) decoded.pcm.remaining() / decoded.channels / decoded.sampleRate;
+
+    int bufferId = alGenBuffers();
+    alBufferData(bufferId, format, decoded.pcm, decoded.sampleRate);
+    // Free STB memory
+    MemoryUtil.memFree(decoded.pcm);
+    return new Sample(path, bufferId, bytes, duration);
+  }
+}
@@ -2,13 +2,22 @@ package com.audio;
 
 import static org.lwjgl.opengl.GL33C.*;
 import java.nio.*;
+import java.util.HashMap;
+import java.util.Map;
 import org.lwjgl.system.MemoryStack;
 
 /**
  * Simple shader program helper for OpenGL 3.3+
+ *
+ * Uniform locations are read once when the program links; the setters look
+ * them up in a map instead of asking the driver. A {@code Frame} uniform
+ * block, if the program declares one, is attached to
+ * {@link FrameUniforms#BINDING} so per-frame data is shared with every
+ * other program.
  */
-public class ShaderProgram {
+public final class ShaderProgram {
     private final int programId;
+    private final Map<String, Integer> uniforms = new HashMap<>();
 
     public ShaderProgram(String vertexSrc, String fragmentSrc) {
         int vs = createShader(vertexSrc, GL_VERTEX_SHADER);
@@ -23,6 +32,9 @@ public class ShaderProgram {
 
         glDeleteShader(vs);
         glDeleteShader(fs);
+
+        cacheUniformLocations();
+        bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
     }
 
     private int createShader(String src, int type) {
@@ -34,26 +46,65 @@ public class ShaderProgram {
         return shader;
     }
 
+    // default-block uniforms only; members of uniform blocks have no location
+    private void cacheUniformLocations() {
+        int count = glGetProgrami(programId, GL_ACTIVE_UNIFORMS);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer size = stack.mallocInt(1);
+            IntBuffer type = stack.mallocInt(1);
+            for (int i = 0; i < count; i++) {
+                String name = glGetActiveUniform(programId, i, size, type);
+                int loc = glGetUniformLocation(programId, name);
+                if (loc == -1)
+                    continue;
+                // arrays are reported as "name[0]"; accept the bare name too
+                if (name.endsWith("[0]"))
+                    uniforms.put(name.substring(0, name.length() - 3), loc);
+                uniforms.put(name, loc);
+            }
+        }
+    }
+
     public void bind() { glUseProgram(programId); }
     public void unbind() { glUseProgram(0); }
     public void cleanup() { glDeleteProgram(programId); }
 
+    /** Location of an active uniform, or -1 if the program has none by that name. */
+    public int getUniformLocation(String name) {
+        Integer loc = uniforms.get(name);
+        return loc != null ? loc : -1;
+    }
+
+    /**
+     * Attaches the uniform block {@code blockName} to {@code binding}.
+     *
+     * @return false if the program has no such block
+     */
+    public boolean bindUniformBlock(String blockName, int binding) {
+        int index = glGetUniformBlockIndex(programId, blockName);
+        if (index == GL_INVALID_INDEX)
+            return false;
+        glUniformBlockBinding(programId, index, binding);
+        return true;
+    }
+
     /** Uploads a 4x4 matrix uniform (e.g., model, view, projection). */
     public void setUniformMat4(String name, float[] mat4) {
-        int loc = glGetUniformLocation(programId, name);
+        setUniformMat4(getUniformLocation(name), mat4);
+    }
+
+    public void setUniformMat4(int loc, float[] mat4) {
         if (loc != -1)
-            try (MemoryStack stack = MemoryStack.stackPush()) {
-                FloatBuffer fb = stack.mallocFloat(16);
-                fb.put(mat4).flip();
-                glUniformMatrix4fv(loc, false, fb);
-            }
+            glUniformMatrix4fv(loc, false, mat4);
     }
 
     /** Uploads a vec3 uniform (e.g., color). */
     public void setUniformVec3(String name, float[] vec3) {
-        int loc = glGetUniformLocation(programId, name);
+        setUniformVec3(getUniformLocation(name), vec3);
+    }
+
+    public void setUniformVec3(int loc, float[] vec3) {
         if (loc != -1)
             glUniform3f(loc, vec3[0], vec3[1], vec3[2]);
     }
 }
-
@@ -1,66 +1,47 @@
 package com.audio;
 
 import org.joml.Vector3f;
-import org.lwjgl.system.MemoryStack;
-import org.lwjgl.system.MemoryUtil;
-
-import java.nio.IntBuffer;
-import java.nio.ShortBuffer;
 
 import static org.lwjgl.openal.AL10.*;
-import static org.lwjgl.stb.STBVorbis.*;
-import static org.lwjgl.system.MemoryStack.stackPush;
 
 public class Sound {
+  private final SampleCache cache;
+  private final SampleCache.Sample sample;
   private int bufferId;
-  private int sourceId;
+  private int sourceId; // created on the first direct play(), 0 until then
+  private float duration; // seconds
 
+  /** Loads through the default {@link SampleCache}, sharing the clip with other sounds. */
   public Sound(String filePath) {
-    try (MemoryStack stack = stackPush()) {
-      // Allocate space for output values
-      IntBuffer channelsBuffer = stack.mallocInt(1);
-      IntBuffer sampleRateBuffer = stack.mallocInt(1);
-
-      // Decode the OGG file into PCM data
-      ShortBuffer pcm = stb_vorbis_decode_filename(filePath, channelsBuffer, sampleRateBuffer);
-      if (pcm == null) {
-        throw new RuntimeException("Failed to load sound file: " + filePath);
-      }
-
-      int channels = channelsBuffer.get(0);
-      int sampleRate = sampleRateBuffer.get(0);
-
-      // Choose format (mono or stereo)
-      int format;
-      if (channels == 1) {
-        format = AL_FORMAT_MONO16;
-      } else if (channels == 2) {
-        format = AL_FORMAT_STEREO16;
-      } else {
-        throw new RuntimeException("Unsupported number of channels: " + channels);
-      }
-
-      // Generate buffer and fill with PCM data
-      bufferId = alGenBuffers();
-      alBufferData(bufferId, format, pcm, sampleRate);
-
-      // Free STB memory
-      MemoryUtil.memFree(pcm);
-
-      // Create a source and attach the buffer
-      sourceId = alGenSources();
-      alSourcei(sourceId, AL_BUFFER, bufferId);
-
-                  // Default 3D sound settings
-      alSourcef(sourceId, AL_REFERENCE_DISTANCE, 1.0f);
-      alSourcef(sourceId, AL_ROLLOFF_FACTOR, 1.0f);
-      alSourcef(sourceId, AL_MAX_DISTANCE, 50.0f);
-      alSource3f(sourceId, AL_POSITION, 0f, 0f, 0f);
-      alSourcef(sourceId, AL_GAIN, 2.0f);
-
-      System.out.println("Sound loaded successfully.");
-        
-    }
+    this(SampleCache.getDefault(), filePath);
+  }
+
+  public Sound(SampleCache cache, String filePath) {
+    this.cache = cache;
+    sample = cache.acquire(filePath);
+    bufferId = sample.bufferId;
+    duration = sample.duration;
+  }
+
+  /**
+   * This sound's own source, created on first use. A sound played only
+   * through a {@link VoicePool} never needs one.
+   */
+  private int source() {
+    if (sourceId != 0)
+      return sourceId;
+
+    // Create a source and attach the buffer
+    sourceId = alGenSources();
+    alSourcei(sourceId, AL_BUFFER, bufferId);
+
+    // Default 3D sound settings
+    alSourcef(sourceId, AL_REFERENCE_DISTANCE, 1.0f);
+    alSourcef(sourceId, AL_ROLLOFF_FACTOR, 1.0f);
+    alSourcef(sourceId, AL_MAX_DISTANCE, 50.0f);
+    alSource3f(sourceId, AL_POSITION, 0f, 0f, 0f);
+    alSourcef(sourceId, AL_GAIN, 2.0f);
+    return sourceId;
   }
 
   public void play(Vector3f listenerPos, Vector3f sourcePos) {
@@ -77,7 +58,7 @@ public class Sound {
         alListenerfv(AL_ORIENTATION, orientation);
 
         // Start playback
-        alSource3f(sourceId, AL_POSITION, sourcePos.x, sourcePos.y, sourcePos.z);
+        alSource3f(source(), AL_POSITION, sourcePos.x, sourcePos.y, sourcePos.z);
         if (!isPlaying()) {
             alSourcePlay(sourceId);
         }        
@@ -85,26 +66,42 @@ public class Sound {
 
   /** Check if the sound is currently playing */
   public boolean isPlaying() {
+    if (sourceId == 0)
+      return false;
     int state = alGetSourcei(sourceId, AL_SOURCE_STATE);
     return state == AL_PLAYING;
   }
 
   /** Pause the sound */
   public void pause() {
-    alSourcePause(sourceId);
+    if (sourceId != 0)
+      alSourcePause(sourceId);
   }
 
   /** Resume a paused sound */
   public void resume() {
-    alSourcePlay(sourceId);
+    if (sourceId != 0)
+      alSourcePlay(sourceId);
   }
 
   public void stop() {
-    alSourceStop(sourceId);
+    if (sourceId != 0)
+      alSourceStop(sourceId);
+  }
+
+  /** The decoded PCM, for playing through a {@link VoicePool}. */
+  public int getBufferId() {
+    return bufferId;
+  }
+
+  public float getDuration() {
+    return duration;
   }
 
   public void cleanup() {
-    alDeleteSources(sourceId);
-    alDeleteBuffers(bufferId);
+    if (sourceId != 0)
+      alDeleteSources(sourceId);
+    sourceId = 0;
+    cache.release(sample);
   }
 }
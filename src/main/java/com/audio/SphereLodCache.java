@@ -0,0 +1,103 @@
+package com.audio;
+
+/**
+ * Sphere meshes at several tessellation levels, built on first use and
+ * shared per radius. The meshes come from a {@link MeshRegistry}, so a
+ * level that matches another user's sphere shares its geometry.
+ *
+ * {@link #get} picks the level from the sphere's distance to the camera
+ * relative to its radius, i.e. from roughly how large it is on screen.
+ * It is called per visible sphere per frame, so radii are looked up in an
+ * open-addressing table keyed by their float bits, without boxing.
+ */
+public class SphereLodCache {
+
+    // slices x stacks per level, finest first
+    private static final int[] SLICES = { 32, 16, 10, 6 };
+    private static final int[] STACKS = { 24, 16, 8, 4 };
+
+    // distance / radius beyond which each level gives way to the next
+    private static final float[] SWITCH_RATIO = { 12f, 40f, 120f };
+
+    private final MeshRegistry registry;
+    // radius bits -> meshes per level; a slot is empty while its meshes are null
+    private int[] keys = new int[16];
+    private Mesh[][] levels = new Mesh[16][];
+    private int count;
+
+    public SphereLodCache(MeshRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static int levelCount() {
+        return SLICES.length;
+    }
+
+    /** Level for a sphere of {@code radius} seen from {@code distance}. */
+    public static int levelFor(float radius, float distance) {
+        float ratio = distance / radius;
+        int level = 0;
+        while (level < SWITCH_RATIO.length && ratio > SWITCH_RATIO[level])
+            level++;
+        return level;
+    }
+
+    public Mesh get(float radius, float distance) {
+        return getLevel(radius, levelFor(radius, distance));
+    }
+
+    public Mesh getLevel(float radius, int level) {
+        int key = Float.floatToIntBits(radius);
+        int slot = find(key);
+        Mesh[] meshes = levels[slot];
+        if (meshes == null) {
+            if (2 * (count + 1) > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            meshes = new Mesh[SLICES.length];
+            keys[slot] = key;
+            levels[slot] = meshes;
+            count++;
+        }
+        if (meshes[level] == null)
+            meshes[level] = registry.sphere(radius, SLICES[level], STACKS[level]);
+        return meshes[level];
+    }
+
+    public void cleanup() {
+        for (Mesh[] meshes : levels) {
+            if (meshes == null)
+                continue;
+            for (Mesh mesh : meshes) {
+                if (mesh != null)
+                    registry.release(mesh);
+            }
+        }
+        keys = new int[16];
+        levels = new Mesh[16][];
+        count = 0;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> 16 & mask;
+        while (levels[slot] != null && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Mesh[][] oldLevels = levels;
+        keys = new int[oldKeys.length * 2];
+        levels = new Mesh[oldKeys.length * 2][];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldLevels[i] == null)
+                continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            levels[slot] = oldLevels[i];
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.audio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives any number of {@link MusicStreamer}s from two threads.
+ *
+ * The service thread keeps every stream's OpenAL queue topped up. Each
+ * stream reports when its source will next finish a buffer, and that
+ * deadline is rounded up to a shared {@value #TICK_NANOS} ns tick, so one
+ * wake-up services every stream due at that tick. The thread wakes at
+ * most once per tick however many streams play; refilling a queue up to
+ * a tick late is safe, since each source still has three buffers queued.
+ *
+ * The decode thread fills each stream's PCM ring. It sleeps until a
+ * stream's ring runs low, then tops up every stream that has room.
+ *
+ * A stream is cleaned up by the scheduler once it has played to the end,
+ * or once it is {@linkplain #stop(MusicStreamer) stopped}.
+ */
+public final class StreamScheduler {
+
+  // granularity of the service thread's wake-ups
+  private static final long TICK_NANOS = 25_000_000L;
+
+  private static StreamScheduler defaultScheduler;
+
+  // streams on their way to each thread, and streams done with
+  private final Queue<MusicStreamer> toService = new ConcurrentLinkedQueue<>();
+  private final Queue<MusicStreamer> toDecode = new ConcurrentLinkedQueue<>();
+  private final Queue<MusicStreamer> toStop = new ConcurrentLinkedQueue<>();
+  private final Queue<MusicStreamer> finished = new ConcurrentLinkedQueue<>();
+
+  private final Thread serviceThread;
+  private final Thread decodeThread;
+  private volatile boolean running = true;
+  private final AtomicInteger active = new AtomicInteger();
+
+  public StreamScheduler() {
+    serviceThread = new Thread(this::serviceLoop, "audio-streams");
+    decodeThread = new Thread(this::decodeLoop, "audio-decoder");
+    serviceThread.setDaemon(true);
+    decodeThread.setDaemon(true);
+    serviceThread.start();
+    decodeThread.start();
+  }
+
+  /** The scheduler used by {@link MusicStreamer#playAsync()}, started on first use. */
+  public static synchronized StreamScheduler getDefault() {
+    if (defaultScheduler == null)
+      defaultScheduler = new StreamScheduler();
+    return defaultScheduler;
+  }
+
+  /** Starts playing {@code stream}, which must have been initialised. */
+  public void play(MusicStreamer stream) {
+    if (!running)
+      throw new IllegalStateException("Scheduler has been shut down");
+    if (stream.scheduler != null)
+      throw new IllegalStateException("Already playing: " + stream.getFilename());
+    stream.scheduler = this;
+    active.incrementAndGet();
+    toDecode.add(stream);
+    toService.add(stream);
+    LockSupport.unpark(decodeThread);
+    LockSupport.unpark(serviceThread);
+  }
+
+  /**
+   * Stops {@code stream} and hands it to the decode thread, which frees it.
+   * Does nothing if the stream has already ended.
+   */
+  public void stop(MusicStreamer stream) {
+    toStop.add(stream);
+    LockSupport.unpark(serviceThread);
+  }
+
+  /** Streams playing or about to play. */
+  public int getActiveCount() {
+    return active.get();
+  }
+
+  /** Stops both threads; streams still playing are cleaned up. */
+  public void shutdown() {
+    running = false;
+    LockSupport.unpark(serviceThread);
+    LockSupport.unpark(decodeThread);
+    try {
+      serviceThread.join();
+      decodeThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // ----------------------------------------------------
+  // SERVICE THREAD
+  // ----------------------------------------------------
+  private void serviceLoop() {
+    List<MusicStreamer> streams = new ArrayList<>();
+    long[] due = new long[8];
+
+    while (running) {
+      MusicStreamer added;
+      while ((added = toService.poll()) != null) {
+        added.start(decodeThread);
+        if (streams.size() == due.length)
+          due = Arrays.copyOf(due, due.length * 2);
+        due[streams.size()] = System.nanoTime();
+        streams.add(added);
+      }
+      // after the adds, so a stream stopped right after play() is found
+      MusicStreamer stopped;
+      while ((stopped = toStop.poll()) != null) {
+        int i = streams.indexOf(stopped);
+        if (i >= 0)
+          retire(streams, due, i);
+      }
+
+      long now = System.nanoTime();
+      long next = now + 1_000_000_000L;
+      for (int i = 0; i < streams.size(); i++) {
+        if (due[i] - now <= 0) {
+          long wait = streams.get(i).service();
+          if (wait < 0) {
+            retire(streams, due, i--);
+            continue;
+          }
+          due[i] = now + wait;
+          due[i] += TICK_NANOS - Math.floorMod(due[i], TICK_NANOS);
+        }
+        if (due[i] - next < 0)
+          next = due[i];
+      }
+      LockSupport.parkNanos(next - System.nanoTime());
+    }
+    finished.addAll(streams);
+    MusicStreamer waiting;
+    while ((waiting = toService.poll()) != null)
+      finished.add(waiting);
+  }
+
+  /** Hands {@code streams[i]} to the decode thread to be cleaned up. */
+  private void retire(List<MusicStreamer> streams, long[] due, int i) {
+    finished.add(streams.get(i));
+    int last = streams.size() - 1;
+    streams.set(i, streams.get(last));
+    due[i] = due[last];
+    streams.remove(last);
+    active.decrementAndGet();
+    LockSupport.unpark(decodeThread);
+  }
+
+  // ----------------------------------------------------
+  // DECODE THREAD
+  // ----------------------------------------------------
+  private void decodeLoop() {
+    List<MusicStreamer> streams = new ArrayList<>();
+
+    while (running) {
+      MusicStreamer stream;
+      while ((stream = toDecode.poll()) != null)
+        streams.add(stream);
+      // only this thread touches a stream's decoder, so it also frees them
+      while ((stream = finished.poll()) != null) {
+        streams.remove(stream);
+        stream.free();
+      }
+
+      boolean decoded = false;
+      for (int i = 0; i < streams.size(); i++)
+        decoded |= streams.get(i).decodeAhead();
+      if (!decoded) {
+        // every ring is full: the feeders unpark us when one runs low
+        LockSupport.parkNanos(100_000_000L);
+      }
+    }
+    try {
+      serviceThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    MusicStreamer stream;
+    while ((stream = finished.poll()) != null)
+      stream.free();
+    while ((stream = toDecode.poll()) != null)
+      stream.free();
+  }
+}
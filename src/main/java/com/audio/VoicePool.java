@@ -0,0 +1,357 @@
+package com.audio;
+
+import org.joml.Vector3fc;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.AL_SEC_OFFSET;
+
+/**
+ * A fixed set of OpenAL sources shared by any number of playing sounds.
+ *
+ * Every {@link #play} starts a voice. Voices that can be heard and rank
+ * highest hold a real source; the rest are virtual: they keep their play
+ * position advancing on the clock, hold no source, and are given one again
+ * (resuming at that position) when they outrank a real voice. Voices rank
+ * by priority, then by how loud they are at the listener, then by age,
+ * newer first. A voice quieter than {@link #setVirtualGain} is never real.
+ *
+ * When every voice slot is taken, a new voice replaces the lowest-ranked
+ * voice if it outranks it and is dropped otherwise.
+ *
+ * Not thread safe; call it from the thread that owns the audio context.
+ */
+public class VoicePool {
+
+  // matches the attenuation Sound sets on its own source
+  private static final float REFERENCE_DISTANCE = 1f;
+  private static final float ROLLOFF = 1f;
+  private static final float MAX_DISTANCE = 50f;
+
+  private final int[] sources;
+  private final int[] sourceVoice; // voice using each source, or -1
+
+  // voices, structure-of-arrays; a voice is live while its buffer is non-zero
+  private final int[] buffer;
+  private final int[] generation;
+  private final int[] source; // index into sources, or -1 while virtual
+  private final int[] priority;
+  private final float[] x, y, z;
+  private final float[] gain, pitch;
+  private final float[] duration;  // seconds at pitch 1
+  private final float[] position;  // seconds played, for virtual voices
+  private final boolean[] looping;
+  private final long[] started;    // order of play, for age
+  private final float[] audibility;
+  private int liveCount;
+  private long playCounter;
+
+  // voices ranked best first, rebuilt by update()
+  private final int[] ranked;
+
+  private float listenerX, listenerY, listenerZ;
+  private float virtualGain = 0.03f;
+  private long lastUpdateNanos = -1;
+
+  public VoicePool(int sourceCount, int maxVoices) {
+    sources = new int[sourceCount];
+    sourceVoice = new int[sourceCount];
+    for (int s = 0; s < sourceCount; s++) {
+      sources[s] = alGenSources();
+      sourceVoice[s] = -1;
+      alSourcef(sources[s], AL_REFERENCE_DISTANCE, REFERENCE_DISTANCE);
+      alSourcef(sources[s], AL_ROLLOFF_FACTOR, ROLLOFF);
+      alSourcef(sources[s], AL_MAX_DISTANCE, MAX_DISTANCE);
+    }
+    buffer = new int[maxVoices];
+    generation = new int[maxVoices];
+    source = new int[maxVoices];
+    priority = new int[maxVoices];
+    x = new float[maxVoices];
+    y = new float[maxVoices];
+    z = new float[maxVoices];
+    gain = new float[maxVoices];
+    pitch = new float[maxVoices];
+    duration = new float[maxVoices];
+    position = new float[maxVoices];
+    looping = new boolean[maxVoices];
+    started = new long[maxVoices];
+    audibility = new float[maxVoices];
+    ranked = new int[maxVoices];
+  }
+
+  /** Gain at the listener below which a voice is kept virtual. */
+  public void setVirtualGain(float virtualGain) {
+    this.virtualGain = virtualGain;
+  }
+
+  public void setListener(Vector3fc position) {
+    listenerX = position.x();
+    listenerY = position.y();
+    listenerZ = position.z();
+    alListener3f(AL_POSITION, listenerX, listenerY, listenerZ);
+  }
+
+  // ----------------------------------------------------
+  // PLAYBACK
+  // ----------------------------------------------------
+
+  public long play(Sound sound, Vector3fc at, int priority) {
+    return play(sound.getBufferId(), sound.getDuration(), at.x(), at.y(), at.z(), priority, 1f, 1f, false);
+  }
+
+  /**
+   * Starts {@code buffer} (lasting {@code duration} seconds) at (x, y, z).
+   *
+   * @return a handle for {@link #stop} and {@link #setPosition}, or -1 if
+   *         every voice outranks it
+   */
+  public long play(int buffer, float duration, float x, float y, float z, int priority, float gain, float pitch,
+      boolean looping) {
+    int v = freeVoice();
+    float audible = audibility(x, y, z, gain);
+    if (v < 0) {
+      v = worstVoice();
+      if (!outranks(priority, audible, Long.MAX_VALUE, v))
+        return -1;
+      release(v);
+    }
+    this.buffer[v] = buffer;
+    this.priority[v] = priority;
+    this.x[v] = x;
+    this.y[v] = y;
+    this.z[v] = z;
+    this.gain[v] = gain;
+    this.pitch[v] = pitch;
+    this.duration[v] = duration;
+    this.looping[v] = looping;
+    position[v] = 0f;
+    source[v] = -1;
+    started[v] = playCounter++;
+    audibility[v] = audible;
+    liveCount++;
+
+    if (audible >= virtualGain) {
+      int s = freeSource();
+      if (s < 0) {
+        int victim = worstRealVoice();
+        if (victim >= 0 && outranks(v, victim))
+          s = virtualise(victim);
+      }
+      if (s >= 0)
+        realise(v, s);
+    }
+    return ((long) generation[v] << 32) | v;
+  }
+
+  public void stop(long handle) {
+    int v = voice(handle);
+    if (v >= 0)
+      release(v);
+  }
+
+  public boolean isPlaying(long handle) {
+    return voice(handle) >= 0;
+  }
+
+  /** True while the voice holds a real source. */
+  public boolean isReal(long handle) {
+    int v = voice(handle);
+    return v >= 0 && source[v] >= 0;
+  }
+
+  public void setPosition(long handle, float x, float y, float z) {
+    int v = voice(handle);
+    if (v < 0)
+      return;
+    this.x[v] = x;
+    this.y[v] = y;
+    this.z[v] = z;
+    if (source[v] >= 0)
+      alSource3f(sources[source[v]], AL_POSITION, x, y, z);
+  }
+
+  /** Voices playing, real or virtual. */
+  public int getVoiceCount() {
+    return liveCount;
+  }
+
+  /** Voices holding a real source. */
+  public int getRealVoiceCount() {
+    int n = 0;
+    for (int s = 0; s < sources.length; s++) {
+      if (sourceVoice[s] >= 0)
+        n++;
+    }
+    return n;
+  }
+
+  // ----------------------------------------------------
+  // UPDATE
+  // ----------------------------------------------------
+
+  /**
+   * Retires finished voices, advances virtual ones, and hands the real
+   * sources to the highest-ranked audible voices. Call once per frame.
+   */
+  public void update() {
+    long now = System.nanoTime();
+    float dt = lastUpdateNanos < 0 ? 0f : (now - lastUpdateNanos) * 1e-9f;
+    lastUpdateNanos = now;
+
+    int n = 0;
+    for (int v = 0; v < buffer.length; v++) {
+      if (buffer[v] == 0)
+        continue;
+      if (source[v] >= 0) {
+        if (alGetSourcei(sources[source[v]], AL_SOURCE_STATE) == AL_STOPPED) {
+          release(v);
+          continue;
+        }
+      } else {
+        position[v] += dt * pitch[v];
+        if (position[v] >= duration[v]) {
+          if (!looping[v]) {
+            release(v);
+            continue;
+          }
+          position[v] = duration[v] > 0f ? position[v] % duration[v] : 0f;
+        }
+      }
+      audibility[v] = audibility(x[v], y[v], z[v], gain[v]);
+      // insertion sort: few voices, and mostly in order from last frame
+      int i = n++;
+      while (i > 0 && outranks(v, ranked[i - 1])) {
+        ranked[i] = ranked[i - 1];
+        i--;
+      }
+      ranked[i] = v;
+    }
+
+    // the best audible voices, up to one per source, should be real
+    int realCount = 0;
+    while (realCount < n && realCount < sources.length && audibility[ranked[realCount]] >= virtualGain)
+      realCount++;
+    for (int r = realCount; r < n; r++) {
+      if (source[ranked[r]] >= 0)
+        virtualise(ranked[r]);
+    }
+    for (int r = 0; r < realCount; r++) {
+      if (source[ranked[r]] < 0)
+        realise(ranked[r], freeSource());
+    }
+  }
+
+  public void cleanup() {
+    for (int s = 0; s < sources.length; s++) {
+      alSourceStop(sources[s]);
+      alDeleteSources(sources[s]);
+    }
+  }
+
+  // ----------------------------------------------------
+  // INTERNALS
+  // ----------------------------------------------------
+
+  /** Linear gain at the listener under AL's inverse-distance-clamped model. */
+  private float audibility(float x, float y, float z, float gain) {
+    float dx = x - listenerX, dy = y - listenerY, dz = z - listenerZ;
+    float d = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    d = Math.max(REFERENCE_DISTANCE, Math.min(d, MAX_DISTANCE));
+    return gain * REFERENCE_DISTANCE / (REFERENCE_DISTANCE + ROLLOFF * (d - REFERENCE_DISTANCE));
+  }
+
+  private boolean outranks(int a, int b) {
+    return outranks(priority[a], audibility[a], started[a], b);
+  }
+
+  private boolean outranks(int priority, float audible, long started, int b) {
+    if (priority != this.priority[b])
+      return priority > this.priority[b];
+    if (audible != audibility[b])
+      return audible > audibility[b];
+    return started > this.started[b];
+  }
+
+  /** Gives voice {@code v} source {@code s}, resuming at its position. */
+  private void realise(int v, int s) {
+    int id = sources[s];
+    alSourcei(id, AL_BUFFER, buffer[v]);
+    alSource3f(id, AL_POSITION, x[v], y[v], z[v]);
+    alSourcef(id, AL_GAIN, gain[v]);
+    alSourcef(id, AL_PITCH, pitch[v]);
+    alSourcei(id, AL_LOOPING, looping[v] ? AL_TRUE : AL_FALSE);
+    alSourcef(id, AL_SEC_OFFSET, position[v]);
+    alSourcePlay(id);
+    source[v] = s;
+    sourceVoice[s] = v;
+  }
+
+  /** Takes voice {@code v}'s source, keeping its position; returns the freed source. */
+  private int virtualise(int v) {
+    int s = source[v];
+    int id = sources[s];
+    position[v] = alGetSourcef(id, AL_SEC_OFFSET);
+    alSourceStop(id);
+    alSourcei(id, AL_BUFFER, 0);
+    source[v] = -1;
+    sourceVoice[s] = -1;
+    return s;
+  }
+
+  private void release(int v) {
+    if (source[v] >= 0) {
+      int s = source[v];
+      alSourceStop(sources[s]);
+      alSourcei(sources[s], AL_BUFFER, 0);
+      sourceVoice[s] = -1;
+      source[v] = -1;
+    }
+    buffer[v] = 0;
+    generation[v]++;
+    liveCount--;
+  }
+
+  private int voice(long handle) {
+    if (handle < 0)
+      return -1;
+    int v = (int) handle;
+    if (v >= buffer.length || buffer[v] == 0 || generation[v] != (int) (handle >>> 32))
+      return -1;
+    return v;
+  }
+
+  private int freeVoice() {
+    for (int v = 0; v < buffer.length; v++) {
+      if (buffer[v] == 0)
+        return v;
+    }
+    return -1;
+  }
+
+  private int freeSource() {
+    for (int s = 0; s < sources.length; s++) {
+      if (sourceVoice[s] < 0)
+        return s;
+    }
+    return -1;
+  }
+
+  private int worstVoice() {
+    int worst = -1;
+    for (int v = 0; v < buffer.length; v++) {
+      if (buffer[v] != 0 && (worst < 0 || outranks(worst, v)))
+        worst = v;
+    }
+    return worst;
+  }
+
+  private int worstRealVoice() {
+    int worst = -1;
+    for (int s = 0; s < sources.length; s++) {
+      int v = sourceVoice[s];
+      if (v >= 0 && (worst < 0 || outranks(worst, v)))
+        worst = v;
+    }
+    return worst;
+  }
+}
@@ -0,0 +1,207 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays storage for rigid body state.
+ *
+ * Position, velocity, accumulated force and inverse mass live in parallel
+ * primitive arrays indexed by body slot, so the integrator walks flat memory
+ * and allocates nothing in steady state. {@link RigidBody3D} is a handle onto
+ * one slot of a store.
+ *
+ * Dynamic bodies are either awake or asleep. Awake bodies are listed in
+ * {@link #active}, and only those are integrated, so a sleeping body costs
+ * nothing per step. Static bodies are never awake.
+ *
+ * The arrays are replaced when the store grows, so read them through the
+ * store each time rather than holding on to them.
+ */
+public class BodyStore3D {
+
+    public float[] posX, posY, posZ;
+    public float[] velX, velY, velZ;
+    public float[] forceX, forceY, forceZ;
+    public float[] invMass; // 0 => static body
+
+    public boolean[] awake;
+    public int[] sleepCounter; // consecutive slow steps
+
+    // awake body indices in no particular order, and each body's slot in it
+    public int[] active;
+    private int[] activeSlot;
+    private int activeCount;
+
+    // set when a static body is moved, so colliders and static structures can catch up
+    public boolean staticsMoved;
+
+    private int count;
+
+    public BodyStore3D() {
+        this(64);
+    }
+
+    public BodyStore3D(int initialCapacity) {
+        int cap = Math.max(1, initialCapacity);
+        posX = new float[cap];
+        posY = new float[cap];
+        posZ = new float[cap];
+        velX = new float[cap];
+        velY = new float[cap];
+        velZ = new float[cap];
+        forceX = new float[cap];
+        forceY = new float[cap];
+        forceZ = new float[cap];
+        invMass = new float[cap];
+        awake = new boolean[cap];
+        sleepCounter = new int[cap];
+        active = new int[cap];
+        activeSlot = new int[cap];
+    }
+
+    /** Adds a body at rest and returns its slot index. */
+    public int add(float x, float y, float z, float invMass) {
+        if (count == posX.length)
+            grow(count * 2);
+        int i = count++;
+        posX[i] = x;
+        posY[i] = y;
+        posZ[i] = z;
+        velX[i] = velY[i] = velZ[i] = 0f;
+        forceX[i] = forceY[i] = forceZ[i] = 0f;
+        this.invMass[i] = invMass;
+        awake[i] = false;
+        sleepCounter[i] = 0;
+        activeSlot[i] = -1;
+        wake(i);
+        return i;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int activeCount() {
+        return activeCount;
+    }
+
+    /** Puts a dynamic body back in the active set. No effect on static bodies. */
+    public void wake(int i) {
+        sleepCounter[i] = 0;
+        if (awake[i] || invMass[i] == 0f)
+            return;
+        awake[i] = true;
+        activeSlot[i] = activeCount;
+        active[activeCount++] = i;
+    }
+
+    /** Takes a body out of the active set and stops it. */
+    public void sleep(int i) {
+        if (!awake[i])
+            return;
+        awake[i] = false;
+        velX[i] = velY[i] = velZ[i] = 0f;
+        forceX[i] = forceY[i] = forceZ[i] = 0f;
+
+        int slot = activeSlot[i];
+        int last = active[--activeCount];
+        active[slot] = last;
+        activeSlot[last] = slot;
+        activeSlot[i] = -1;
+    }
+
+    /** Copies every body's state into {@code out}. */
+    public void save(WorldState3D out) {
+        int n = count;
+        out.ensureCapacity(n, 0);
+        out.bodyCount = n;
+        System.arraycopy(posX, 0, out.posX, 0, n);
+        System.arraycopy(posY, 0, out.posY, 0, n);
+        System.arraycopy(posZ, 0, out.posZ, 0, n);
+        System.arraycopy(velX, 0, out.velX, 0, n);
+        System.arraycopy(velY, 0, out.velY, 0, n);
+        System.arraycopy(velZ, 0, out.velZ, 0, n);
+        System.arraycopy(forceX, 0, out.forceX, 0, n);
+        System.arraycopy(forceY, 0, out.forceY, 0, n);
+        System.arraycopy(forceZ, 0, out.forceZ, 0, n);
+        System.arraycopy(awake, 0, out.awake, 0, n);
+        System.arraycopy(sleepCounter, 0, out.sleepCounter, 0, n);
+    }
+
+    /**
+     * Copies the bodies' state back from {@code in}, which must hold as many
+     * bodies as this store, and rebuilds the active set from the awake flags.
+     */
+    public void restore(WorldState3D in) {
+        int n = count;
+        if (in.bodyCount != n)
+            throw new IllegalArgumentException("State holds " + in.bodyCount + " bodies, store has " + n);
+        System.arraycopy(in.posX, 0, posX, 0, n);
+        System.arraycopy(in.posY, 0, posY, 0, n);
+        System.arraycopy(in.posZ, 0, posZ, 0, n);
+        System.arraycopy(in.velX, 0, velX, 0, n);
+        System.arraycopy(in.velY, 0, velY, 0, n);
+        System.arraycopy(in.velZ, 0, velZ, 0, n);
+        System.arraycopy(in.forceX, 0, forceX, 0, n);
+        System.arraycopy(in.forceY, 0, forceY, 0, n);
+        System.arraycopy(in.forceZ, 0, forceZ, 0, n);
+        System.arraycopy(in.awake, 0, awake, 0, n);
+        System.arraycopy(in.sleepCounter, 0, sleepCounter, 0, n);
+
+        activeCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (awake[i]) {
+                activeSlot[i] = activeCount;
+                active[activeCount++] = i;
+            } else {
+                activeSlot[i] = -1;
+            }
+        }
+        staticsMoved = true;
+    }
+
+    /**
+     * Semi-implicit Euler over every awake body: v += (F / m + g) * dt;
+     * p += v * dt. Clears the force accumulators afterwards.
+     */
+    public void integrate(float dt, float gx, float gy, float gz) {
+        integrate(0, activeCount, dt, gx, gy, gz);
+    }
+
+    /**
+     * Integrates the awake bodies {@code active[from]} .. {@code active[to - 1]};
+     * disjoint ranges may run concurrently.
+     */
+    public void integrate(int from, int to, float dt, float gx, float gy, float gz) {
+        for (int k = from; k < to; k++) {
+            int i = active[k];
+            float im = invMass[i];
+            velX[i] += (forceX[i] * im + gx) * dt;
+            velY[i] += (forceY[i] * im + gy) * dt;
+            velZ[i] += (forceZ[i] * im + gz) * dt;
+
+            posX[i] += velX[i] * dt;
+            posY[i] += velY[i] * dt;
+            posZ[i] += velZ[i] * dt;
+
+            forceX[i] = forceY[i] = forceZ[i] = 0f;
+        }
+    }
+
+    private void grow(int capacity) {
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        posZ = Arrays.copyOf(posZ, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        velZ = Arrays.copyOf(velZ, capacity);
+        forceX = Arrays.copyOf(forceX, capacity);
+        forceY = Arrays.copyOf(forceY, capacity);
+        forceZ = Arrays.copyOf(forceZ, capacity);
+        invMass = Arrays.copyOf(invMass, capacity);
+        awake = Arrays.copyOf(awake, capacity);
+        sleepCounter = Arrays.copyOf(sleepCounter, capacity);
+        active = Arrays.copyOf(active, capacity);
+        activeSlot = Arrays.copyOf(activeSlot, capacity);
+    }
+}
@@ -0,0 +1,25 @@
+package com.audio.physics3d;
+
+import java.util.List;
+
+/**
+ * Broad-phase stage of the physics step.
+ *
+ * Culls the set of collider pairs down to candidates whose bounding boxes
+ * overlap, so that only those pairs reach the narrow phase in
+ * {@link Collision3D}. Implementations may keep state between steps.
+ */
+public interface BroadPhase3D {
+
+    /**
+     * Clears {@code out} and fills it with candidate pairs of indices into
+     * {@code colliders}. Pairs are written with the lower index first.
+     * {@code store} holds the state of the matching bodies. A collider with
+     * a nonzero sweep (see {@link Collider3D#continuous}) must be bounded
+     * over its whole path, {@code position - sweep} to {@code position}.
+     *
+     * When {@code includeStatics} is false, no pair may contain a static
+     * body; the engine finds those pairs itself (see {@link PhysicsEngine3D#setStaticBvh}).
+     */
+    void findPairs(List<Collider3D> colliders, BodyStore3D store, boolean includeStatics, PairBuffer3D out);
+}
@@ -0,0 +1,453 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounding volume hierarchy over either the static or the dynamic colliders.
+ *
+ * Built top-down with a binned surface area heuristic and stored as flat
+ * arrays: node {@code n} is an interior node with children
+ * {@code first[n]} and {@code first[n] + 1} when {@code count[n] == 0},
+ * otherwise a leaf holding {@code prims[first[n]] .. prims[first[n] + count[n] - 1]}.
+ * Children always come after their parent, so a refit is one backwards pass.
+ *
+ * The engine builds one over the statics once and refits it when they move
+ * (adding statics needs a rebuild); the one over dynamic bodies only serves
+ * queries and is refit lazily, once per step that is queried.
+ */
+class Bvh3D {
+
+    private static final int BINS = 12;
+    private static final int MAX_LEAF = 4;
+
+    // nodes
+    private float[] nodeMinX = new float[0], nodeMinY = new float[0], nodeMinZ = new float[0];
+    private float[] nodeMaxX = new float[0], nodeMaxY = new float[0], nodeMaxZ = new float[0];
+    private int[] first = new int[0];
+    private int[] count = new int[0];
+    private int nodeCount;
+    private int depth;
+
+    // primitives (collider indices), with their bounds and centroids by slot
+    private int[] prims = new int[0];
+    private float[] primMinX = new float[0], primMinY = new float[0], primMinZ = new float[0];
+    private float[] primMaxX = new float[0], primMaxY = new float[0], primMaxZ = new float[0];
+    private int primCount;
+
+    // build scratch
+    private final float[] binMinX = new float[BINS], binMinY = new float[BINS], binMinZ = new float[BINS];
+    private final float[] binMaxX = new float[BINS], binMaxY = new float[BINS], binMaxZ = new float[BINS];
+    private final int[] binCount = new int[BINS];
+    private final float[] leftCost = new float[BINS - 1];
+
+    // traversal stack for the engine's own queries
+    private int[] stack = new int[0];
+
+    /** Rebuilds the tree over every static, or every dynamic, body in {@code store}. */
+    void build(List<Collider3D> colliders, BodyStore3D store, boolean statics) {
+        int n = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if ((store.invMass[i] == 0f) == statics)
+                n++;
+        }
+        ensurePrimCapacity(n);
+        primCount = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if ((store.invMass[i] == 0f) == statics)
+                prims[primCount++] = i;
+        }
+        updatePrimBounds(colliders);
+
+        ensureNodeCapacity(Math.max(1, 2 * n - 1));
+        nodeCount = 1;
+        depth = 1;
+        first[0] = 0;
+        count[0] = n;
+        if (n == 0) {
+            setEmpty(0);
+        } else {
+            subdivide(0, 1);
+        }
+        if (stack.length < depth + 1)
+            stack = new int[depth + 1];
+    }
+
+    /** Recomputes every bound after static bodies moved, keeping the topology. */
+    void refit(List<Collider3D> colliders) {
+        updatePrimBounds(colliders);
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (count[node] > 0) {
+                fitLeaf(node);
+                continue;
+            }
+            int l = first[node], r = l + 1;
+            nodeMinX[node] = Math.min(nodeMinX[l], nodeMinX[r]);
+            nodeMinY[node] = Math.min(nodeMinY[l], nodeMinY[r]);
+            nodeMinZ[node] = Math.min(nodeMinZ[l], nodeMinZ[r]);
+            nodeMaxX[node] = Math.max(nodeMaxX[l], nodeMaxX[r]);
+            nodeMaxY[node] = Math.max(nodeMaxY[l], nodeMaxY[r]);
+            nodeMaxZ[node] = Math.max(nodeMaxZ[l], nodeMaxZ[r]);
+        }
+    }
+
+    int size() {
+        return primCount;
+    }
+
+    /** Traversal stack length needed by queries on this tree. */
+    int stackSize() {
+        return depth + 1;
+    }
+
+    /**
+     * Adds a pair for every body in the tree whose bounds overlap
+     * {@code collider}'s (boundaries touching counts, as in the broad phases).
+     */
+    void findPairs(int body, Collider3D collider, PairBuffer3D out) {
+        if (primCount == 0)
+            return;
+        float minX = collider.minX(), minY = collider.minY(), minZ = collider.minZ();
+        float maxX = collider.maxX(), maxY = collider.maxY(), maxZ = collider.maxZ();
+        int[] stack = this.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeMinX[node] > maxX || nodeMaxX[node] < minX
+                    || nodeMinY[node] > maxY || nodeMaxY[node] < minY
+                    || nodeMinZ[node] > maxZ || nodeMaxZ[node] < minZ)
+                continue;
+            if (count[node] == 0) {
+                stack[top++] = first[node];
+                stack[top++] = first[node] + 1;
+                continue;
+            }
+            for (int k = first[node], end = k + count[node]; k < end; k++) {
+                if (primMinX[k] > maxX || primMaxX[k] < minX
+                        || primMinY[k] > maxY || primMaxY[k] < minY
+                        || primMinZ[k] > maxZ || primMaxZ[k] < minZ)
+                    continue;
+                int s = prims[k];
+                if (s < body)
+                    out.add(s, body);
+                else
+                    out.add(body, s);
+            }
+        }
+    }
+
+    /**
+     * Casts ray {@code r} of {@code rays}, thickened by {@code radius},
+     * against the bodies in the tree, keeping the closest hit in
+     * {@code rays}. Nearer children are visited first and subtrees beyond
+     * the current hit are skipped. {@code stack} needs {@link #stackSize()}
+     * entries, so concurrent casts each bring their own.
+     */
+    void castRay(List<Collider3D> colliders, RayBatch3D rays, int r, float radius, int[] stack) {
+        if (primCount == 0)
+            return;
+        float ox = rays.originX[r], oy = rays.originY[r], oz = rays.originZ[r];
+        float dx = rays.dirX[r], dy = rays.dirY[r], dz = rays.dirZ[r];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entry(node, ox, oy, oz, dx, dy, dz, radius, rays.hitDistance[r]) == Float.POSITIVE_INFINITY)
+                continue;
+            if (count[node] > 0) {
+                for (int k = first[node], end = k + count[node]; k < end; k++)
+                    Collision3D.castRay(prims[k], colliders.get(prims[k]), rays, r, radius);
+                continue;
+            }
+            int near = first[node], far = near + 1;
+            float tNear = entry(near, ox, oy, oz, dx, dy, dz, radius, rays.hitDistance[r]);
+            float tFar = entry(far, ox, oy, oz, dx, dy, dz, radius, rays.hitDistance[r]);
+            if (tFar < tNear) {
+                int n = near;
+                near = far;
+                far = n;
+                float t = tNear;
+                tNear = tFar;
+                tFar = t;
+            }
+            // pushed last, popped first
+            if (tFar != Float.POSITIVE_INFINITY)
+                stack[top++] = far;
+            if (tNear != Float.POSITIVE_INFINITY)
+                stack[top++] = near;
+        }
+    }
+
+    /**
+     * Appends to {@code out}, from position {@code n}, every body in the tree
+     * whose collider overlaps the box. Bodies past the end of {@code out} are
+     * counted but not written.
+     *
+     * @return {@code n} plus the number of bodies found
+     */
+    int overlap(List<Collider3D> colliders, float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ, int[] out, int n, int[] stack) {
+        if (primCount == 0)
+            return n;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeMinX[node] > maxX || nodeMaxX[node] < minX
+                    || nodeMinY[node] > maxY || nodeMaxY[node] < minY
+                    || nodeMinZ[node] > maxZ || nodeMaxZ[node] < minZ)
+                continue;
+            if (count[node] == 0) {
+                stack[top++] = first[node];
+                stack[top++] = first[node] + 1;
+                continue;
+            }
+            for (int k = first[node], end = k + count[node]; k < end; k++) {
+                if (!Collision3D.overlapsBox(colliders.get(prims[k]), minX, minY, minZ, maxX, maxY, maxZ))
+                    continue;
+                if (n < out.length)
+                    out[n] = prims[k];
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // distance along the ray to node's box grown by radius, or infinity if
+    // the ray misses it within maxDistance
+    private float entry(int node, float ox, float oy, float oz, float dx, float dy, float dz,
+            float radius, float maxDistance) {
+        float enter = 0f, exit = maxDistance;
+        float lo = nodeMinX[node] - radius, hi = nodeMaxX[node] + radius;
+        if (dx != 0f) {
+            float t0 = (lo - ox) / dx, t1 = (hi - ox) / dx;
+            enter = Math.max(enter, Math.min(t0, t1));
+            exit = Math.min(exit, Math.max(t0, t1));
+        } else if (ox < lo || ox > hi) {
+            return Float.POSITIVE_INFINITY;
+        }
+        lo = nodeMinY[node] - radius;
+        hi = nodeMaxY[node] + radius;
+        if (dy != 0f) {
+            float t0 = (lo - oy) / dy, t1 = (hi - oy) / dy;
+            enter = Math.max(enter, Math.min(t0, t1));
+            exit = Math.min(exit, Math.max(t0, t1));
+        } else if (oy < lo || oy > hi) {
+            return Float.POSITIVE_INFINITY;
+        }
+        lo = nodeMinZ[node] - radius;
+        hi = nodeMaxZ[node] + radius;
+        if (dz != 0f) {
+            float t0 = (lo - oz) / dz, t1 = (hi - oz) / dz;
+            enter = Math.max(enter, Math.min(t0, t1));
+            exit = Math.min(exit, Math.max(t0, t1));
+        } else if (oz < lo || oz > hi) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return enter <= exit ? enter : Float.POSITIVE_INFINITY;
+    }
+
+    // -------------------------------------------------------------
+    // Build
+    // -------------------------------------------------------------
+
+    private void subdivide(int node, int level) {
+        depth = Math.max(depth, level);
+        fitLeaf(node);
+        int start = first[node], n = count[node];
+        if (n <= MAX_LEAF / 2)
+            return;
+
+        // centroid bounds pick the binning range on each axis
+        float cMinX = Float.POSITIVE_INFINITY, cMinY = Float.POSITIVE_INFINITY, cMinZ = Float.POSITIVE_INFINITY;
+        float cMaxX = Float.NEGATIVE_INFINITY, cMaxY = Float.NEGATIVE_INFINITY, cMaxZ = Float.NEGATIVE_INFINITY;
+        for (int k = start; k < start + n; k++) {
+            float cx = primMinX[k] + primMaxX[k], cy = primMinY[k] + primMaxY[k], cz = primMinZ[k] + primMaxZ[k];
+            cMinX = Math.min(cMinX, cx); cMaxX = Math.max(cMaxX, cx);
+            cMinY = Math.min(cMinY, cy); cMaxY = Math.max(cMaxY, cy);
+            cMinZ = Math.min(cMinZ, cz); cMaxZ = Math.max(cMaxZ, cz);
+        }
+
+        int bestAxis = -1, bestBin = 0;
+        float bestCost = Float.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            float lo = axis == 0 ? cMinX : axis == 1 ? cMinY : cMinZ;
+            float hi = axis == 0 ? cMaxX : axis == 1 ? cMaxY : cMaxZ;
+            if (hi <= lo)
+                continue;
+            float scale = BINS / (hi - lo);
+            binPrims(start, n, axis, lo, scale);
+
+            // sweep the split planes: area * count to the left, then to the right
+            int leftCount = 0;
+            float minX = Float.POSITIVE_INFINITY, minY = minX, minZ = minX;
+            float maxX = Float.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+            for (int b = 0; b < BINS - 1; b++) {
+                leftCount += binCount[b];
+                minX = Math.min(minX, binMinX[b]); maxX = Math.max(maxX, binMaxX[b]);
+                minY = Math.min(minY, binMinY[b]); maxY = Math.max(maxY, binMaxY[b]);
+                minZ = Math.min(minZ, binMinZ[b]); maxZ = Math.max(maxZ, binMaxZ[b]);
+                leftCost[b] = leftCount == 0 ? 0f : leftCount * area(minX, minY, minZ, maxX, maxY, maxZ);
+            }
+            int rightCount = 0;
+            minX = Float.POSITIVE_INFINITY; minY = minX; minZ = minX;
+            maxX = Float.NEGATIVE_INFINITY; maxY = maxX; maxZ = maxX;
+            for (int b = BINS - 1; b > 0; b--) {
+                rightCount += binCount[b];
+                minX = Math.min(minX, binMinX[b]); maxX = Math.max(maxX, binMaxX[b]);
+                minY = Math.min(minY, binMinY[b]); maxY = Math.max(maxY, binMaxY[b]);
+                minZ = Math.min(minZ, binMinZ[b]); maxZ = Math.max(maxZ, binMaxZ[b]);
+                if (rightCount == 0 || rightCount == n)
+                    continue;
+                float cost = leftCost[b - 1] + rightCount * area(minX, minY, minZ, maxX, maxY, maxZ);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = b;
+                }
+            }
+        }
+
+        float leafCost = n * area(nodeMinX[node], nodeMinY[node], nodeMinZ[node],
+                nodeMaxX[node], nodeMaxY[node], nodeMaxZ[node]);
+        int mid;
+        if (bestAxis >= 0 && (bestCost < leafCost || n > MAX_LEAF)) {
+            float lo = bestAxis == 0 ? cMinX : bestAxis == 1 ? cMinY : cMinZ;
+            float hi = bestAxis == 0 ? cMaxX : bestAxis == 1 ? cMaxY : cMaxZ;
+            mid = partition(start, n, bestAxis, lo, BINS / (hi - lo), bestBin);
+        } else if (n > MAX_LEAF) {
+            // every centroid coincides: split the range in half
+            mid = start + n / 2;
+        } else {
+            return;
+        }
+
+        int left = nodeCount;
+        nodeCount += 2;
+        first[left] = start;
+        count[left] = mid - start;
+        first[left + 1] = mid;
+        count[left + 1] = start + n - mid;
+        first[node] = left;
+        count[node] = 0;
+        subdivide(left, level + 1);
+        subdivide(left + 1, level + 1);
+    }
+
+    private void binPrims(int start, int n, int axis, float lo, float scale) {
+        Arrays.fill(binCount, 0);
+        Arrays.fill(binMinX, Float.POSITIVE_INFINITY);
+        Arrays.fill(binMinY, Float.POSITIVE_INFINITY);
+        Arrays.fill(binMinZ, Float.POSITIVE_INFINITY);
+        Arrays.fill(binMaxX, Float.NEGATIVE_INFINITY);
+        Arrays.fill(binMaxY, Float.NEGATIVE_INFINITY);
+        Arrays.fill(binMaxZ, Float.NEGATIVE_INFINITY);
+        for (int k = start; k < start + n; k++) {
+            int b = bin(k, axis, lo, scale);
+            binCount[b]++;
+            binMinX[b] = Math.min(binMinX[b], primMinX[k]);
+            binMinY[b] = Math.min(binMinY[b], primMinY[k]);
+            binMinZ[b] = Math.min(binMinZ[b], primMinZ[k]);
+            binMaxX[b] = Math.max(binMaxX[b], primMaxX[k]);
+            binMaxY[b] = Math.max(binMaxY[b], primMaxY[k]);
+            binMaxZ[b] = Math.max(binMaxZ[b], primMaxZ[k]);
+        }
+    }
+
+    private int bin(int k, int axis, float lo, float scale) {
+        float c = axis == 0 ? primMinX[k] + primMaxX[k]
+                : axis == 1 ? primMinY[k] + primMaxY[k]
+                : primMinZ[k] + primMaxZ[k];
+        return Math.min(BINS - 1, (int) ((c - lo) * scale));
+    }
+
+    // moves primitives in bins below splitBin to the front; returns the first slot of the rest
+    private int partition(int start, int n, int axis, float lo, float scale, int splitBin) {
+        int i = start, j = start + n - 1;
+        while (i <= j) {
+            if (bin(i, axis, lo, scale) < splitBin) {
+                i++;
+            } else {
+                swapPrims(i, j);
+                j--;
+            }
+        }
+        return i;
+    }
+
+    private void swapPrims(int a, int b) {
+        int p = prims[a]; prims[a] = prims[b]; prims[b] = p;
+        float t;
+        t = primMinX[a]; primMinX[a] = primMinX[b]; primMinX[b] = t;
+        t = primMinY[a]; primMinY[a] = primMinY[b]; primMinY[b] = t;
+        t = primMinZ[a]; primMinZ[a] = primMinZ[b]; primMinZ[b] = t;
+        t = primMaxX[a]; primMaxX[a] = primMaxX[b]; primMaxX[b] = t;
+        t = primMaxY[a]; primMaxY[a] = primMaxY[b]; primMaxY[b] = t;
+        t = primMaxZ[a]; primMaxZ[a] = primMaxZ[b]; primMaxZ[b] = t;
+    }
+
+    private static float area(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        float dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    private void fitLeaf(int node) {
+        float minX = Float.POSITIVE_INFINITY, minY = minX, minZ = minX;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+        for (int k = first[node], end = k + count[node]; k < end; k++) {
+            minX = Math.min(minX, primMinX[k]); maxX = Math.max(maxX, primMaxX[k]);
+            minY = Math.min(minY, primMinY[k]); maxY = Math.max(maxY, primMaxY[k]);
+            minZ = Math.min(minZ, primMinZ[k]); maxZ = Math.max(maxZ, primMaxZ[k]);
+        }
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeMinZ[node] = minZ;
+        nodeMaxX[node] = maxX;
+        nodeMaxY[node] = maxY;
+        nodeMaxZ[node] = maxZ;
+    }
+
+    // an empty root overlaps nothing
+    private void setEmpty(int node) {
+        nodeMinX[node] = nodeMinY[node] = nodeMinZ[node] = Float.POSITIVE_INFINITY;
+        nodeMaxX[node] = nodeMaxY[node] = nodeMaxZ[node] = Float.NEGATIVE_INFINITY;
+    }
+
+    private void updatePrimBounds(List<Collider3D> colliders) {
+        for (int k = 0; k < primCount; k++) {
+            Collider3D c = colliders.get(prims[k]);
+            primMinX[k] = c.minX();
+            primMinY[k] = c.minY();
+            primMinZ[k] = c.minZ();
+            primMaxX[k] = c.maxX();
+            primMaxY[k] = c.maxY();
+            primMaxZ[k] = c.maxZ();
+        }
+    }
+
+    private void ensurePrimCapacity(int n) {
+        if (prims.length >= n)
+            return;
+        prims = new int[n];
+        primMinX = new float[n];
+        primMinY = new float[n];
+        primMinZ = new float[n];
+        primMaxX = new float[n];
+        primMaxY = new float[n];
+        primMaxZ = new float[n];
+    }
+
+    private void ensureNodeCapacity(int n) {
+        if (first.length >= n)
+            return;
+        first = new int[n];
+        count = new int[n];
+        nodeMinX = new float[n];
+        nodeMinY = new float[n];
+        nodeMinZ = new float[n];
+        nodeMaxX = new float[n];
+        nodeMaxY = new float[n];
+        nodeMaxZ = new float[n];
+    }
+}
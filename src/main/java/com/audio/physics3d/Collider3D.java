@@ -17,6 +17,13 @@ public class Collider3D {
     public float radius;  // For Sphere
     public String name;
 
+    // continuous collision detection: the body is swept along its motion
+    // each step so it cannot tunnel through thin colliders
+    public boolean continuous;
+
+    // displacement over the current step, set by the engine while sweeping
+    public float sweepX, sweepY, sweepZ;
+
     public Collider3D(Vector3f position, float radius, String name) {
         this.type = Type.SPHERE;
         this.position = position;
@@ -42,6 +49,47 @@ public class Collider3D {
             return sphereVsAabb(other, this);
     }
 
+    /** Half extent of the collider's bounding box along x. */
+    public float extentX() {
+        return type == Type.SPHERE ? radius : size.x;
+    }
+
+    /** Half extent of the collider's bounding box along y. */
+    public float extentY() {
+        return type == Type.SPHERE ? radius : size.y;
+    }
+
+    /** Half extent of the collider's bounding box along z. */
+    public float extentZ() {
+        return type == Type.SPHERE ? radius : size.z;
+    }
+
+    // Bounding box, covering the current sweep: position - sweep to position.
+
+    public float minX() {
+        return position.x - extentX() - Math.max(0f, sweepX);
+    }
+
+    public float maxX() {
+        return position.x + extentX() - Math.min(0f, sweepX);
+    }
+
+    public float minY() {
+        return position.y - extentY() - Math.max(0f, sweepY);
+    }
+
+    public float maxY() {
+        return position.y + extentY() - Math.min(0f, sweepY);
+    }
+
+    public float minZ() {
+        return position.z - extentZ() - Math.max(0f, sweepZ);
+    }
+
+    public float maxZ() {
+        return position.z + extentZ() - Math.min(0f, sweepZ);
+    }
+
     private boolean sphereVsSphere(Collider3D other) {
         float dx = position.x - other.position.x;
         float dy = position.y - other.position.y;
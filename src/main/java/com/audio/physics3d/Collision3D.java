@@ -1,9 +1,5 @@
 package com.audio.physics3d;
 
-import org.joml.Vector3f;
-
-import com.audio.Game3D;
-
 /**
  * Basic 3D collision detection and resolution helper.
  *
@@ -12,173 +8,480 @@ import com.audio.Game3D;
  * - AABB–AABB (Axis-Aligned Bounding Boxes)
  * - AABB–Sphere (both directions)
  *
+ * Detection and resolution are separate passes. {@link #detect} writes
+ * contacts into a {@link ContactManifold3D}; {@link #resolveContacts} then
+ * works through the buffer one contact at a time (see
+ * {@link PairwiseContactSolver3D}). Both work directly on primitive state and
+ * allocate nothing per contact.
+ *
  * Educational version for clarity and teaching 3D physics fundamentals.
  */
 public class Collision3D {
 
   /**
-   * Resolves collisions between two rigid bodies based on collider type.
+   * Tests two colliders (bodies {@code a} and {@code b}) and, if they overlap,
+   * appends a contact to {@code out}.
+   *
+   * @return true if a contact was written
    */
-  public static void resolve(RigidBody3D a, Collider3D colA,
-      RigidBody3D b, Collider3D colB,
-      float restitution, Game3D main) {
-
+  public static boolean detect(int a, Collider3D colA, int b, Collider3D colB, ContactManifold3D out) {
     if (colA.type == Collider3D.Type.SPHERE && colB.type == Collider3D.Type.SPHERE) {
-      resolveSphereCollision(a, colA, b, colB, restitution, main);
+      return detectSphereSphere(a, colA, b, colB, out);
     } else if (colA.type == Collider3D.Type.AABB && colB.type == Collider3D.Type.AABB) {
-      resolveAABBCollision(a, colA, b, colB, restitution, main);
+      return detectAABB(a, colA, b, colB, out);
     } else if (colA.type == Collider3D.Type.SPHERE && colB.type == Collider3D.Type.AABB) {
-      resolveSphereAABBCollision(a, colA, b, colB, restitution, main);
-    } else if (colA.type == Collider3D.Type.AABB && colB.type == Collider3D.Type.SPHERE) {
-      resolveSphereAABBCollision(b, colB, a, colA, restitution, main);
+      return detectSphereAABB(a, colA, b, colB, out);
+    } else {
+      return detectSphereAABB(b, colB, a, colA, out);
     }
   }
 
   // -------------------------------------------------------------
-  // Sphere–Sphere Collision
+  // Sphere–Sphere Detection
   // -------------------------------------------------------------
-  public static void resolveSphereCollision(RigidBody3D a, Collider3D colA,
-      RigidBody3D b, Collider3D colB,
-      float restitution, Game3D main) {
-
-    Vector3f delta = new Vector3f(
-        b.position.x - a.position.x,
-        b.position.y - a.position.y,
-        b.position.z - a.position.z);
-
-    float distance = (float) Math.sqrt(delta.x * delta.x + delta.y * delta.y + delta.z * delta.z);
-    float overlap = (colA.radius + colB.radius) - distance;
-    if (overlap <= 0)
-      return;
-
-    Vector3f normal = new Vector3f(delta.x / distance, delta.y / distance, delta.z / distance);
-
-    // Separate spheres
-    Vector3f correction = normal.mul(overlap / 2f);
-    if (!a.isStatic)
-      a.position = a.position.add(correction.mul(-1));
-    if (!b.isStatic)
-      b.position = b.position.add(correction);
+  private static boolean detectSphereSphere(int a, Collider3D colA, int b, Collider3D colB,
+      ContactManifold3D out) {
+
+    float dx = colB.position.x - colA.position.x;
+    float dy = colB.position.y - colA.position.y;
+    float dz = colB.position.z - colA.position.z;
+
+    float distSq = dx * dx + dy * dy + dz * dz;
+    float radiusSum = colA.radius + colB.radius;
+    if (distSq >= radiusSum * radiusSum)
+      return false;
+
+    float distance = (float) Math.sqrt(distSq);
+    float nx, ny, nz;
+    if (distance > 1e-6f) {
+      nx = dx / distance;
+      ny = dy / distance;
+      nz = dz / distance;
+    } else {
+      // concentric spheres: pick an arbitrary but stable axis
+      nx = 0;
+      ny = 1;
+      nz = 0;
+    }
 
-    applyImpulse(a, b, normal, restitution);
+    float overlap = radiusSum - distance;
+    float reach = colA.radius - overlap * 0.5f;
+    out.add(a, b, ContactManifold3D.SPHERE_SPHERE, nx, ny, nz, overlap,
+        colA.position.x + nx * reach, colA.position.y + ny * reach, colA.position.z + nz * reach);
+    return true;
   }
 
   // -------------------------------------------------------------
-  // AABB–AABB Collision
+  // AABB–AABB Detection
   // -------------------------------------------------------------
-  public static void resolveAABBCollision(RigidBody3D a, Collider3D colA,
-      RigidBody3D b, Collider3D colB,
-      float restitution, Game3D main) {
+  private static boolean detectAABB(int a, Collider3D colA, int b, Collider3D colB,
+      ContactManifold3D out) {
 
-    float dx = (a.position.x - b.position.x);
+    float dx = (colB.position.x - colA.position.x);
     float px = (colA.size.x + colB.size.x) - Math.abs(dx);
     if (px <= 0)
-      return;
+      return false;
 
-    float dy = (a.position.y - b.position.y);
+    float dy = (colB.position.y - colA.position.y);
     float py = (colA.size.y + colB.size.y) - Math.abs(dy);
     if (py <= 0)
-      return;
+      return false;
 
-    float dz = (a.position.z - b.position.z);
+    float dz = (colB.position.z - colA.position.z);
     float pz = (colA.size.z + colB.size.z) - Math.abs(dz);
     if (pz <= 0)
-      return;
-    
+      return false;
 
-
-      
-    // Determine minimum overlap axis
-    Vector3f normal = new Vector3f(0, 0, 0);
-    float overlap = px;
+    // Minimum overlap axis gives the normal, pointing from A to B
+    float nx = 0, ny = 0, nz = 0;
+    float overlap;
     if (px < py && px < pz) {
-      normal.x = dx < 0 ? -1 : 1;
+      nx = dx < 0 ? -1 : 1;
       overlap = px;
     } else if (py < pz) {
-      normal.y = dy < 0 ? -1 : 1;
+      ny = dy < 0 ? -1 : 1;
       overlap = py;
     } else {
-      normal.z = dz < 0 ? -1 : 1;
+      nz = dz < 0 ? -1 : 1;
       overlap = pz;
-    }    
+    }
+
+    // contact point: centre of the overlapping region
+    float cx = overlapCentre(colA.position.x, colA.size.x, colB.position.x, colB.size.x);
+    float cy = overlapCentre(colA.position.y, colA.size.y, colB.position.y, colB.size.y);
+    float cz = overlapCentre(colA.position.z, colA.size.z, colB.position.z, colB.size.z);
+
+    out.add(a, b, ContactManifold3D.AABB_AABB, nx, ny, nz, overlap, cx, cy, cz);
+    return true;
+  }
+
+  // -------------------------------------------------------------
+  // Sphere–AABB Detection
+  // -------------------------------------------------------------
+  private static boolean detectSphereAABB(int sphere, Collider3D sphereCol, int box, Collider3D boxCol,
+      ContactManifold3D out) {
+
+    float sx = sphereCol.position.x, sy = sphereCol.position.y, sz = sphereCol.position.z;
+    float minX = boxCol.position.x - boxCol.size.x, maxX = boxCol.position.x + boxCol.size.x;
+    float minY = boxCol.position.y - boxCol.size.y, maxY = boxCol.position.y + boxCol.size.y;
+    float minZ = boxCol.position.z - boxCol.size.z, maxZ = boxCol.position.z + boxCol.size.z;
+
+    float closestX = clamp(sx, minX, maxX);
+    float closestY = clamp(sy, minY, maxY);
+    float closestZ = clamp(sz, minZ, maxZ);
+
+    // Vector from sphere center to closest point
+    float dx = closestX - sx;
+    float dy = closestY - sy;
+    float dz = closestZ - sz;
+    float distSq = dx * dx + dy * dy + dz * dz;
+    float radius = sphereCol.radius;
+    if (distSq >= radius * radius)
+      return false;
+
+    if (distSq > 1e-12f) {
+      float distance = (float) Math.sqrt(distSq);
+      out.add(sphere, box, ContactManifold3D.SPHERE_AABB,
+          dx / distance, dy / distance, dz / distance, radius - distance,
+          closestX, closestY, closestZ);
+      return true;
+    }
+
+    // Centre inside the box: push out through the nearest face
+    float best = sx - minX;
+    float nx = 1, ny = 0, nz = 0;
+    float fx = minX, fy = sy, fz = sz;
+    if (maxX - sx < best) { best = maxX - sx; nx = -1; fx = maxX; }
+    if (sy - minY < best) { best = sy - minY; nx = 0; ny = 1; fx = sx; fy = minY; }
+    if (maxY - sy < best) { best = maxY - sy; nx = 0; ny = -1; fx = sx; fy = maxY; }
+    if (sz - minZ < best) { best = sz - minZ; nx = 0; ny = 0; nz = 1; fx = sx; fy = sy; fz = minZ; }
+    if (maxZ - sz < best) { best = maxZ - sz; nx = 0; ny = 0; nz = -1; fx = sx; fy = sy; fz = maxZ; }
+
+    out.add(sphere, box, ContactManifold3D.SPHERE_AABB, nx, ny, nz, radius + best, fx, fy, fz);
+    return true;
+  }
+
+  // -------------------------------------------------------------
+  // Continuous detection
+  // -------------------------------------------------------------
+
+  /**
+   * Time of impact of {@code moving}, swept from {@code position - sweep} to
+   * {@code position}, against {@code other} held at its current position.
+   *
+   * Sphere pairs are swept exactly; any pair involving a box is swept
+   * against the box grown by the other shape's half extents, which is
+   * conservative near edges and corners. Both shapes are shrunk by
+   * {@code skin} so that a body placed at the returned time overlaps by
+   * about that much and the narrow phase still reports the contact.
+   *
+   * @return the fraction of the sweep in [0, 1) at which the shapes first
+   *         touch, or 1 if they do not meet or already overlapped at the start
+   */
+  public static float timeOfImpact(Collider3D moving, Collider3D other, float skin) {
+    float dx = moving.sweepX, dy = moving.sweepY, dz = moving.sweepZ;
+    // start of the sweep, relative to the other collider
+    float sx = moving.position.x - dx - other.position.x;
+    float sy = moving.position.y - dy - other.position.y;
+    float sz = moving.position.z - dz - other.position.z;
+
+    if (moving.type == Collider3D.Type.SPHERE && other.type == Collider3D.Type.SPHERE) {
+      float r = Math.max(moving.radius + other.radius - skin, 0f);
+      return raySphere(sx, sy, sz, dx, dy, dz, r);
+    }
+    float hx = Math.max(moving.extentX() + other.extentX() - skin, 0f);
+    float hy = Math.max(moving.extentY() + other.extentY() - skin, 0f);
+    float hz = Math.max(moving.extentZ() + other.extentZ() - skin, 0f);
+    return rayBox(sx, sy, sz, dx, dy, dz, hx, hy, hz);
+  }
 
-    overlap *= 1.1f; // slight fudge factor to avoid sticking
-    Vector3f correction;
-    if (a.isStatic || b.isStatic)
-      correction = (new Vector3f(normal)).mul(overlap);
-    else
-      correction = (new Vector3f(normal)).mul(overlap/2 );
+  // ray s + t * d against the sphere of radius r at the origin
+  private static float raySphere(float sx, float sy, float sz, float dx, float dy, float dz, float r) {
+    float c = sx * sx + sy * sy + sz * sz - r * r;
+    if (c <= 0f)
+      return 1f; // already overlapping, the narrow phase handles it
+    float b = sx * dx + sy * dy + sz * dz;
+    if (b >= 0f)
+      return 1f; // moving away
+    float a = dx * dx + dy * dy + dz * dz;
+    float disc = b * b - a * c;
+    if (disc < 0f)
+      return 1f;
+    float t = (-b - (float) Math.sqrt(disc)) / a;
+    return t < 1f ? Math.max(t, 0f) : 1f;
+  }
 
-    if (!a.isStatic){
-      a.position.add(correction);
-      if (b.isStatic)
-        a.velocity.mul(-restitution);
-      else{
-        a.velocity.mul((a.mass/(a.mass + b.mass)) * restitution);
-      }      
+  // ray s + t * d against the box with half extents h at the origin (slab test)
+  private static float rayBox(float sx, float sy, float sz, float dx, float dy, float dz,
+      float hx, float hy, float hz) {
+    if (Math.abs(sx) < hx && Math.abs(sy) < hy && Math.abs(sz) < hz)
+      return 1f; // already overlapping, the narrow phase handles it
+    float enter = 0f, exit = 1f;
+    if (dx != 0f) {
+      float t0 = (-hx - sx) / dx, t1 = (hx - sx) / dx;
+      enter = Math.max(enter, Math.min(t0, t1));
+      exit = Math.min(exit, Math.max(t0, t1));
+    } else if (Math.abs(sx) > hx) {
+      return 1f;
     }
-    if (!b.isStatic){
-      b.position.add(correction.mul(-1));
-      if (a.isStatic)
-        b.velocity.mul(-restitution);
-      else{
-        b.velocity.mul((b.mass/(a.mass + b.mass)) * restitution);
-      }      
+    if (dy != 0f) {
+      float t0 = (-hy - sy) / dy, t1 = (hy - sy) / dy;
+      enter = Math.max(enter, Math.min(t0, t1));
+      exit = Math.min(exit, Math.max(t0, t1));
+    } else if (Math.abs(sy) > hy) {
+      return 1f;
     }
+    if (dz != 0f) {
+      float t0 = (-hz - sz) / dz, t1 = (hz - sz) / dz;
+      enter = Math.max(enter, Math.min(t0, t1));
+      exit = Math.min(exit, Math.max(t0, t1));
+    } else if (Math.abs(sz) > hz) {
+      return 1f;
+    }
+    if (enter > exit)
+      return 1f;
+    return enter < 1f ? enter : 1f;
   }
 
   // -------------------------------------------------------------
-  // Sphere–AABB Collision
+  // Queries
   // -------------------------------------------------------------
-  public static void resolveSphereAABBCollision(RigidBody3D sphereBody, Collider3D sphereCol,
-      RigidBody3D boxBody, Collider3D boxCol,
-      float restitution, Game3D main) {
-
-    Vector3f closestPoint = new Vector3f(
-      Math.max(boxBody.position.x - boxCol.size.x, Math.min(sphereBody.position.x, boxBody.position.x + boxCol.size.x)),
-      Math.max(boxBody.position.y - boxCol.size.y, Math.min(sphereBody.position.y, boxBody.position.y + boxCol.size.y)),
-      Math.max(boxBody.position.z - boxCol.size.z, Math.min(sphereBody.position.z, boxBody.position.z + boxCol.size.z))
-    );
-
-    // Vector from closest point to sphere center
-    Vector3f delta = sphereBody.position.sub(closestPoint, new Vector3f());
-    float distance = delta.length();
-
-    if (distance < sphereCol.radius) {
-        Vector3f normal = delta.normalize();
-        float penetration = sphereCol.radius - distance;
-
-        sphereBody.position.fma(penetration, normal);
-
-        float vDotN = sphereBody.velocity.dot(normal);
-        if (vDotN < 0) {            
-            Vector3f reflection = new Vector3f(normal).mul(-2f * vDotN);
-            sphereBody.velocity.add(reflection).mul(restitution);
-            if (reflection.length() > 0.4f) {                              
-              main.playBounce(sphereBody.position);
-            }
+
+  /**
+   * Casts ray {@code r} of {@code rays}, thickened to a sphere of
+   * {@code radius} (0 for a plain ray), against collider {@code c} of body
+   * {@code body}. Records the hit if it is closer than the ray's current
+   * result; equally close hits go to the lower body index.
+   *
+   * Boxes are swept as the box grown by the radius, which is conservative
+   * near edges and corners. A ray starting inside a shape hits it at
+   * distance 0 with the normal facing back along the ray.
+   *
+   * @return true if the result was updated
+   */
+  public static boolean castRay(int body, Collider3D c, RayBatch3D rays, int r, float radius) {
+    float ox = rays.originX[r] - c.position.x;
+    float oy = rays.originY[r] - c.position.y;
+    float oz = rays.originZ[r] - c.position.z;
+    float dx = rays.dirX[r], dy = rays.dirY[r], dz = rays.dirZ[r];
+    float t, nx, ny, nz;
+
+    if (c.type == Collider3D.Type.SPHERE) {
+      float rr = c.radius + radius;
+      float cc = ox * ox + oy * oy + oz * oz - rr * rr;
+      if (cc <= 0f) {
+        t = 0f;
+        nx = -dx;
+        ny = -dy;
+        nz = -dz;
+      } else {
+        float b = ox * dx + oy * dy + oz * dz;
+        float disc = b * b - cc;
+        if (b >= 0f || disc < 0f)
+          return false;
+        t = -b - (float) Math.sqrt(disc);
+        nx = (ox + dx * t) / rr;
+        ny = (oy + dy * t) / rr;
+        nz = (oz + dz * t) / rr;
+      }
+    } else {
+      float hx = c.size.x + radius, hy = c.size.y + radius, hz = c.size.z + radius;
+      if (Math.abs(ox) < hx && Math.abs(oy) < hy && Math.abs(oz) < hz) {
+        t = 0f;
+        nx = -dx;
+        ny = -dy;
+        nz = -dz;
+      } else {
+        // slab test, remembering which face the ray enters through
+        float enter = 0f, exit = Float.POSITIVE_INFINITY;
+        int axis = -1;
+        if (dx != 0f) {
+          float t0 = (-hx - ox) / dx, t1 = (hx - ox) / dx;
+          if (Math.min(t0, t1) > enter) {
+            enter = Math.min(t0, t1);
+            axis = 0;
+          }
+          exit = Math.min(exit, Math.max(t0, t1));
+        } else if (Math.abs(ox) > hx) {
+          return false;
+        }
+        if (dy != 0f) {
+          float t0 = (-hy - oy) / dy, t1 = (hy - oy) / dy;
+          if (Math.min(t0, t1) > enter) {
+            enter = Math.min(t0, t1);
+            axis = 1;
+          }
+          exit = Math.min(exit, Math.max(t0, t1));
+        } else if (Math.abs(oy) > hy) {
+          return false;
         }
-        
-        
+        if (dz != 0f) {
+          float t0 = (-hz - oz) / dz, t1 = (hz - oz) / dz;
+          if (Math.min(t0, t1) > enter) {
+            enter = Math.min(t0, t1);
+            axis = 2;
+          }
+          exit = Math.min(exit, Math.max(t0, t1));
+        } else if (Math.abs(oz) > hz) {
+          return false;
+        }
+        if (axis < 0 || enter > exit)
+          return false;
+        t = enter;
+        nx = axis == 0 ? -Math.signum(dx) : 0f;
+        ny = axis == 1 ? -Math.signum(dy) : 0f;
+        nz = axis == 2 ? -Math.signum(dz) : 0f;
       }
+    }
+
+    float best = rays.hitDistance[r];
+    if (t > best || (t == best && rays.hitBody[r] >= 0 && body > rays.hitBody[r]))
+      return false;
+    rays.hitBody[r] = body;
+    rays.hitDistance[r] = t;
+    rays.hitNormalX[r] = nx;
+    rays.hitNormalY[r] = ny;
+    rays.hitNormalZ[r] = nz;
+    return true;
+  }
+
+  /** Whether collider {@code c} overlaps the box [min, max] (touching counts). */
+  public static boolean overlapsBox(Collider3D c, float minX, float minY, float minZ,
+      float maxX, float maxY, float maxZ) {
+    if (c.type == Collider3D.Type.AABB) {
+      return c.minX() <= maxX && c.maxX() >= minX
+          && c.minY() <= maxY && c.maxY() >= minY
+          && c.minZ() <= maxZ && c.maxZ() >= minZ;
+    }
+    float dx = c.position.x - clamp(c.position.x, minX, maxX);
+    float dy = c.position.y - clamp(c.position.y, minY, maxY);
+    float dz = c.position.z - clamp(c.position.z, minZ, maxZ);
+    return dx * dx + dy * dy + dz * dz <= c.radius * c.radius;
   }
 
   // -------------------------------------------------------------
-  // Common Helper Methods
+  // Resolution
   // -------------------------------------------------------------
 
-  private static void applyImpulse(RigidBody3D a, RigidBody3D b, Vector3f normal, float restitution) {
-    if (a.isStatic && b.isStatic)
+  /** Resolves every contact in {@code contacts}, in buffer order. */
+  public static void resolveContacts(ContactManifold3D contacts, BodyStore3D store, float restitution) {
+    for (int c = 0; c < contacts.size(); c++) {
+      resolveContact(contacts, c, store, restitution);
+    }
+  }
+
+  /**
+   * Resolves contact {@code c}. Contacts that share no dynamic body may be
+   * resolved concurrently.
+   */
+  public static void resolveContact(ContactManifold3D contacts, int c, BodyStore3D store,
+      float restitution) {
+    switch (contacts.kind[c]) {
+      case ContactManifold3D.SPHERE_SPHERE:
+        resolveSphereCollision(contacts, c, store, restitution);
+        break;
+      case ContactManifold3D.AABB_AABB:
+        resolveAABBCollision(contacts, c, store, restitution);
+        break;
+      default:
+        resolveSphereAABBCollision(contacts, c, store, restitution);
+        break;
+    }
+  }
+
+  private static void resolveSphereCollision(ContactManifold3D contacts, int c, BodyStore3D store,
+      float restitution) {
+    int a = contacts.bodyA[c];
+    int b = contacts.bodyB[c];
+    float nx = contacts.normalX[c], ny = contacts.normalY[c], nz = contacts.normalZ[c];
+
+    // Separate spheres, half the overlap each
+    float half = contacts.depth[c] / 2f;
+    if (store.invMass[a] != 0f) {
+      store.posX[a] -= nx * half;
+      store.posY[a] -= ny * half;
+      store.posZ[a] -= nz * half;
+    }
+    if (store.invMass[b] != 0f) {
+      store.posX[b] += nx * half;
+      store.posY[b] += ny * half;
+      store.posZ[b] += nz * half;
+    }
+
+    applyImpulse(store, a, b, nx, ny, nz, restitution);
+  }
+
+  private static void resolveAABBCollision(ContactManifold3D contacts, int c, BodyStore3D store,
+      float restitution) {
+    int a = contacts.bodyA[c];
+    int b = contacts.bodyB[c];
+    float invA = store.invMass[a];
+    float invB = store.invMass[b];
+    boolean staticA = invA == 0f;
+    boolean staticB = invB == 0f;
+
+    float overlap = contacts.depth[c] * 1.1f; // slight fudge factor to avoid sticking
+    float scale = (staticA || staticB) ? overlap : overlap / 2;
+    // the normal points A -> B, so A moves against it and B along it
+    float cx = contacts.normalX[c] * scale;
+    float cy = contacts.normalY[c] * scale;
+    float cz = contacts.normalZ[c] * scale;
+
+    if (!staticA) {
+      store.posX[a] -= cx;
+      store.posY[a] -= cy;
+      store.posZ[a] -= cz;
+      // mass ratio mA / (mA + mB) written with inverse masses
+      scaleVelocity(store, a, staticB ? -restitution : (invB / (invA + invB)) * restitution);
+    }
+    if (!staticB) {
+      store.posX[b] += cx;
+      store.posY[b] += cy;
+      store.posZ[b] += cz;
+      scaleVelocity(store, b, staticA ? -restitution : (invA / (invA + invB)) * restitution);
+    }
+  }
+
+  private static void resolveSphereAABBCollision(ContactManifold3D contacts, int c, BodyStore3D store,
+      float restitution) {
+    int sphere = contacts.bodyA[c];
+
+    // a static sphere must not be pushed out of the box
+    if (store.invMass[sphere] == 0f)
       return;
 
-    Vector3f relativeVelocity = new Vector3f(
-        b.velocity.x - a.velocity.x,
-        b.velocity.y - a.velocity.y,
-        b.velocity.z - a.velocity.z);
+    // outward normal: from the box towards the sphere
+    float nx = -contacts.normalX[c], ny = -contacts.normalY[c], nz = -contacts.normalZ[c];
+    float penetration = contacts.depth[c];
+
+    store.posX[sphere] += nx * penetration;
+    store.posY[sphere] += ny * penetration;
+    store.posZ[sphere] += nz * penetration;
+
+    float vDotN = store.velX[sphere] * nx + store.velY[sphere] * ny + store.velZ[sphere] * nz;
+    if (vDotN < 0) {
+      float reflect = -2f * vDotN;
+      store.velX[sphere] = (store.velX[sphere] + nx * reflect) * restitution;
+      store.velY[sphere] = (store.velY[sphere] + ny * reflect) * restitution;
+      store.velZ[sphere] = (store.velZ[sphere] + nz * reflect) * restitution;
+    }
+  }
+
+  // -------------------------------------------------------------
+  // Common Helper Methods
+  // -------------------------------------------------------------
+
+  private static void applyImpulse(BodyStore3D store, int a, int b,
+      float nx, float ny, float nz, float restitution) {
+    float invA = store.invMass[a];
+    float invB = store.invMass[b];
+    float totalInverseMass = invA + invB;
+    if (totalInverseMass <= 0)
+      return;
 
-    float separatingVelocity = relativeVelocity.x * normal.x +
-        relativeVelocity.y * normal.y +
-        relativeVelocity.z * normal.z;
+    float separatingVelocity = (store.velX[b] - store.velX[a]) * nx +
+        (store.velY[b] - store.velY[a]) * ny +
+        (store.velZ[b] - store.velZ[a]) * nz;
 
     if (separatingVelocity > 0)
       return;
@@ -186,18 +489,26 @@ public class Collision3D {
     float newSepVelocity = -separatingVelocity * restitution;
     float deltaVelocity = newSepVelocity - separatingVelocity;
 
+    float impulse = deltaVelocity / totalInverseMass;
 
-    float totalInverseMass = (a.isStatic ? 0 : 1 / a.mass) + (b.isStatic ? 0 : 1 / b.mass);
-    if (totalInverseMass <= 0)
-      return;
+    store.velX[a] -= nx * impulse * invA;
+    store.velY[a] -= ny * impulse * invA;
+    store.velZ[a] -= nz * impulse * invA;
+    store.velX[b] += nx * impulse * invB;
+    store.velY[b] += ny * impulse * invB;
+    store.velZ[b] += nz * impulse * invB;
+  }
 
-    float impulse = deltaVelocity / totalInverseMass;    
-    Vector3f impulsePerMass = normal.mul(impulse, new Vector3f());
+  private static void scaleVelocity(BodyStore3D store, int i, float s) {
+    store.velX[i] *= s;
+    store.velY[i] *= s;
+    store.velZ[i] *= s;
+  }
 
-    if (!a.isStatic)
-      a.velocity.add(impulsePerMass.mul(-1 / a.mass, new Vector3f()));
-    if (!b.isStatic)
-      b.velocity.add(impulsePerMass.mul(1 / b.mass, new Vector3f()));
+  private static float overlapCentre(float posA, float extA, float posB, float extB) {
+    float lo = Math.max(posA - extA, posB - extB);
+    float hi = Math.min(posA + extA, posB + extB);
+    return (lo + hi) * 0.5f;
   }
 
   private static float clamp(float val, float min, float max) {
@@ -0,0 +1,25 @@
+package com.audio.physics3d;
+
+/**
+ * Receives the impacts found during a physics step.
+ *
+ * The engine calls the listener on the thread that steps it, after the
+ * contacts of the step have been solved, so it never runs concurrently
+ * with itself even in parallel mode.
+ */
+@FunctionalInterface
+public interface CollisionListener3D {
+
+    /**
+     * Called once per contact whose bodies were closing faster than the
+     * engine's impact speed (see {@link PhysicsEngine3D#setImpactSpeed}).
+     *
+     * @param a     first body; for sphere-box contacts this is the sphere
+     * @param b     second body
+     * @param x     contact point x, in world space
+     * @param y     contact point y
+     * @param z     contact point z
+     * @param speed closing speed along the contact normal before the solve (m/s)
+     */
+    void onImpact(RigidBody3D a, RigidBody3D b, float x, float y, float z, float speed);
+}
@@ -0,0 +1,109 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * Impulses from the previous step, keyed by body pair, for warm starting.
+ *
+ * Two open-addressing tables are swapped every step: lookups read the
+ * previous step's table while the current step's impulses are written to
+ * the other, so contacts that went away are dropped automatically. The
+ * step only ever looks entries up, never iterates, so the table layout
+ * cannot influence the simulation; a saved table restored at a different
+ * capacity answers every lookup the same.
+ */
+class ContactCache3D {
+
+    private static final long EMPTY = -1L;
+
+    private long[] prevKeys = new long[0];
+    private float[] prevValues = new float[0];
+    private int prevMask = -1;
+
+    private long[] keys = new long[0];
+    private float[] values = new float[0];
+    private int mask = -1;
+
+    /** Impulse stored for {@code key} in the previous step, or 0. */
+    float lookup(long key) {
+        if (prevMask < 0)
+            return 0f;
+        int slot = hash(key) & prevMask;
+        while (true) {
+            long k = prevKeys[slot];
+            if (k == key)
+                return prevValues[slot];
+            if (k == EMPTY)
+                return 0f;
+            slot = (slot + 1) & prevMask;
+        }
+    }
+
+    /** Starts writing this step's impulses, with room for {@code expected} entries. */
+    void beginStore(int expected) {
+        int cap = Integer.highestOneBit(Math.max(4, expected * 2) - 1) << 1;
+        if (keys.length < cap) {
+            keys = new long[cap];
+            values = new float[cap];
+        }
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+    }
+
+    void store(long key, float impulse) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        keys[slot] = key;
+        values[slot] = impulse;
+    }
+
+    /** Makes the impulses written since {@link #beginStore} visible to {@link #lookup}. */
+    void endStore() {
+        long[] tk = prevKeys;
+        float[] tv = prevValues;
+        prevKeys = keys;
+        prevValues = values;
+        prevMask = mask;
+        keys = tk;
+        values = tv;
+        mask = -1;
+    }
+
+    /** Copies the impulses visible to {@link #lookup} into {@code out}. */
+    void save(WorldState3D out) {
+        int n = 0;
+        for (int slot = 0; slot <= prevMask; slot++) {
+            if (prevKeys[slot] != EMPTY)
+                n++;
+        }
+        out.ensureCapacity(0, n);
+        out.impulseCount = n;
+        n = 0;
+        for (int slot = 0; slot <= prevMask; slot++) {
+            if (prevKeys[slot] != EMPTY) {
+                out.impulseKeys[n] = prevKeys[slot];
+                out.impulseValues[n] = prevValues[slot];
+                n++;
+            }
+        }
+    }
+
+    /** Replaces the impulses visible to {@link #lookup} with those in {@code in}. */
+    void restore(WorldState3D in) {
+        beginStore(in.impulseCount);
+        for (int k = 0; k < in.impulseCount; k++)
+            store(in.impulseKeys[k], in.impulseValues[k]);
+        endStore();
+    }
+
+    void clear() {
+        prevMask = -1;
+        mask = -1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,111 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of contacts written by the narrow phase.
+ *
+ * Contacts are stored as parallel primitive arrays that only grow, so once
+ * the buffer has reached the scene's peak contact count, filling it
+ * allocates nothing. The normal points from body A towards body B; for
+ * sphere-box contacts body A is always the sphere.
+ *
+ * {@code approachSpeed} and {@code normalImpulse} are filled in by the engine
+ * and the solver after detection.
+ */
+public class ContactManifold3D {
+
+    public static final byte SPHERE_SPHERE = 0;
+    public static final byte AABB_AABB = 1;
+    public static final byte SPHERE_AABB = 2;
+
+    public int[] bodyA, bodyB;
+    public byte[] kind;
+    public float[] normalX, normalY, normalZ;
+    public float[] depth;
+    public float[] pointX, pointY, pointZ;
+    public float[] approachSpeed; // closing speed along the normal before solving
+    public float[] normalImpulse; // accumulated solver impulse
+
+    private int count;
+
+    public ContactManifold3D() {
+        this(64);
+    }
+
+    public ContactManifold3D(int initialCapacity) {
+        int cap = Math.max(1, initialCapacity);
+        bodyA = new int[cap];
+        bodyB = new int[cap];
+        kind = new byte[cap];
+        normalX = new float[cap];
+        normalY = new float[cap];
+        normalZ = new float[cap];
+        depth = new float[cap];
+        pointX = new float[cap];
+        pointY = new float[cap];
+        pointZ = new float[cap];
+        approachSpeed = new float[cap];
+        normalImpulse = new float[cap];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Appends a contact and returns its index. */
+    public int add(int a, int b, byte kind, float nx, float ny, float nz, float depth,
+            float px, float py, float pz) {
+        if (count == bodyA.length)
+            grow(count * 2);
+        int c = count++;
+        bodyA[c] = a;
+        bodyB[c] = b;
+        this.kind[c] = kind;
+        normalX[c] = nx;
+        normalY[c] = ny;
+        normalZ[c] = nz;
+        this.depth[c] = depth;
+        pointX[c] = px;
+        pointY[c] = py;
+        pointZ[c] = pz;
+        approachSpeed[c] = 0f;
+        normalImpulse[c] = 0f;
+        return c;
+    }
+
+    /** Key identifying the body pair of contact {@code c} across steps. */
+    public long pairKey(int c) {
+        return ((long) bodyA[c] << 32) | (bodyB[c] & 0xffffffffL);
+    }
+
+    /** Records how fast each pair is closing along its normal, from current velocities. */
+    public void measureApproachSpeeds(BodyStore3D store) {
+        for (int c = 0; c < count; c++) {
+            int a = bodyA[c];
+            int b = bodyB[c];
+            approachSpeed[c] = -((store.velX[b] - store.velX[a]) * normalX[c]
+                    + (store.velY[b] - store.velY[a]) * normalY[c]
+                    + (store.velZ[b] - store.velZ[a]) * normalZ[c]);
+        }
+    }
+
+    private void grow(int capacity) {
+        bodyA = Arrays.copyOf(bodyA, capacity);
+        bodyB = Arrays.copyOf(bodyB, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        normalX = Arrays.copyOf(normalX, capacity);
+        normalY = Arrays.copyOf(normalY, capacity);
+        normalZ = Arrays.copyOf(normalZ, capacity);
+        depth = Arrays.copyOf(depth, capacity);
+        pointX = Arrays.copyOf(pointX, capacity);
+        pointY = Arrays.copyOf(pointY, capacity);
+        pointZ = Arrays.copyOf(pointZ, capacity);
+        approachSpeed = Arrays.copyOf(approachSpeed, capacity);
+        normalImpulse = Arrays.copyOf(normalImpulse, capacity);
+    }
+}
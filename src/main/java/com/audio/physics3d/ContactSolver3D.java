@@ -0,0 +1,36 @@
+package com.audio.physics3d;
+
+/**
+ * Resolves the contacts written by the narrow phase.
+ *
+ * The engine calls {@link #prepare} once, then {@link #solve} for each
+ * contact island (possibly concurrently, see
+ * {@link PhysicsEngine3D#setParallel}), then {@link #finish} once. Islands
+ * never share a dynamic body, so {@code solve} only has to be safe for
+ * disjoint sets of bodies.
+ */
+public interface ContactSolver3D {
+
+    /** Called before any island is solved. */
+    default void prepare(ContactManifold3D contacts, BodyStore3D store, float dt) {
+    }
+
+    /** Solves the contacts {@code order[from]} .. {@code order[to - 1]}. */
+    void solve(ContactManifold3D contacts, int[] order, int from, int to, BodyStore3D store, float dt);
+
+    /** Called after every island has been solved. */
+    default void finish(ContactManifold3D contacts, BodyStore3D store) {
+    }
+
+    /**
+     * Writes the state the solver carries from one step to the next (such as
+     * warm-start impulses) into {@code out}, for snapshots and rollback.
+     */
+    default void saveState(WorldState3D out) {
+        out.impulseCount = 0;
+    }
+
+    /** Puts back state written by {@link #saveState}. */
+    default void restoreState(WorldState3D in) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.audio.physics3d;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated ring of impact events, filled by the engine at the end of
+ * each step and drained by whoever turns them into sound.
+ *
+ * Events are stored structure-of-arrays in fixed-size arrays, so
+ * recording one is a few array writes. The ring is single-producer,
+ * single-consumer and lock-free, so the consumer may run on another thread
+ * than the one stepping the engine. When it is full new events are
+ * dropped and counted rather than blocking the step.
+ *
+ * A consumer reads events {@code slot(0) .. slot(available() - 1)}, oldest
+ * first, then hands them back with {@link #consume}.
+ */
+public class ImpactBuffer3D {
+
+    public final int[] bodyA, bodyB;
+    public final float[] x, y, z;   // contact point
+    public final float[] impulse;   // normal impulse the solver applied
+    public final float[] speed;     // closing speed before the solve (m/s)
+
+    private final int mask;
+    // events pushed and events consumed since the start
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** {@code capacity} is rounded up to a power of two. */
+    public ImpactBuffer3D(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        bodyA = new int[cap];
+        bodyB = new int[cap];
+        x = new float[cap];
+        y = new float[cap];
+        z = new float[cap];
+        impulse = new float[cap];
+        speed = new float[cap];
+        mask = cap - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Events lost because the ring was full. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // -------------------------------------------------------------
+    // Producer
+    // -------------------------------------------------------------
+
+    /** Records an impact; false if the ring was full and it was dropped. */
+    boolean push(int a, int b, float px, float py, float pz, float impulse, float speed) {
+        long h = head.get();
+        if (h - tail.get() > mask) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int s = (int) h & mask;
+        bodyA[s] = a;
+        bodyB[s] = b;
+        x[s] = px;
+        y[s] = py;
+        z[s] = pz;
+        this.impulse[s] = impulse;
+        this.speed[s] = speed;
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    // -------------------------------------------------------------
+    // Consumer
+    // -------------------------------------------------------------
+
+    /** Events ready to read. */
+    public int available() {
+        return (int) (head.get() - tail.get());
+    }
+
+    /** Array index of the {@code k}-th oldest unread event. */
+    public int slot(int k) {
+        return (int) (tail.get() + k) & mask;
+    }
+
+    /** Hands the {@code n} oldest events back to the producer. */
+    public void consume(int n) {
+        tail.lazySet(tail.get() + n);
+    }
+}
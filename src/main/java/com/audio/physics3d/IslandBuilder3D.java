@@ -0,0 +1,158 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * Splits the narrow-phase contacts into contact islands.
+ *
+ * Two dynamic bodies are in the same island when a chain of contacts
+ * connects them. Static bodies never join islands together because the
+ * solver does not move them. Islands share no dynamic body, so they can be
+ * resolved on different threads without changing the result.
+ *
+ * Islands are numbered in order of their first contact, and each island
+ * lists its contacts in manifold order, so the layout depends only on the
+ * input and never on thread count. All arrays are reused between steps, and
+ * per-body entries are reset lazily with a stamp, so a build costs time
+ * proportional to the number of contacts rather than bodies.
+ */
+class IslandBuilder3D {
+
+    private int[] parent = new int[0];
+    private int[] stamp = new int[0];
+    private int[] islandOfRoot = new int[0];
+    private int[] restless = new int[0];
+    private int currentStamp;
+
+    private int[] contactIsland = new int[0];
+    private int[] contactOrder = new int[0];
+    private int[] islandStart = new int[1];
+    private int islandCount;
+
+    /** Groups the contacts in {@code contacts} into islands. */
+    void build(BodyStore3D store, ContactManifold3D contacts) {
+        int n = store.size();
+        int m = contacts.size();
+        ensureCapacity(n, m);
+
+        if (++currentStamp == 0) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(restless, 0);
+            currentStamp = 1;
+        }
+
+        for (int c = 0; c < m; c++) {
+            int a = contacts.bodyA[c];
+            int b = contacts.bodyB[c];
+            if (store.invMass[a] != 0f && store.invMass[b] != 0f)
+                union(a, b);
+        }
+
+        // number islands by first appearance and count their contacts
+        islandCount = 0;
+        for (int c = 0; c < m; c++) {
+            int a = contacts.bodyA[c];
+            int body = store.invMass[a] == 0f ? contacts.bodyB[c] : a;
+            int root = root(body);
+            if (islandOfRoot[root] < 0) {
+                islandOfRoot[root] = islandCount;
+                if (islandStart.length < islandCount + 2)
+                    islandStart = Arrays.copyOf(islandStart, (islandCount + 2) * 2);
+                islandStart[islandCount + 1] = 0;
+                islandCount++;
+            }
+            int island = islandOfRoot[root];
+            contactIsland[c] = island;
+            islandStart[island + 1]++;
+        }
+
+        // prefix sums, then a stable scatter of contact indices
+        islandStart[0] = 0;
+        for (int k = 0; k < islandCount; k++)
+            islandStart[k + 1] += islandStart[k];
+        for (int c = 0; c < m; c++) {
+            int island = contactIsland[c];
+            contactOrder[islandStart[island]++] = c;
+        }
+        for (int k = islandCount; k > 0; k--)
+            islandStart[k] = islandStart[k - 1];
+        islandStart[0] = 0;
+    }
+
+    int islandCount() {
+        return islandCount;
+    }
+
+    /** Contact indices of every island, island by island. */
+    int[] contactOrder() {
+        return contactOrder;
+    }
+
+    /** First entry of {@code island} in {@link #contactOrder()}. */
+    int islandStart(int island) {
+        return islandStart[island];
+    }
+
+    /** One past the last entry of {@code island} in {@link #contactOrder()}. */
+    int islandEnd(int island) {
+        return islandStart[island + 1];
+    }
+
+    /**
+     * Representative body of the island containing {@code body}, as of the
+     * last {@link #build}. A body without contacts is its own root.
+     */
+    int root(int body) {
+        touch(body);
+        while (parent[body] != body) {
+            parent[body] = parent[parent[body]];
+            body = parent[body];
+        }
+        return body;
+    }
+
+    /** Marks the island containing {@code body} as not ready to sleep. */
+    void markRestless(int body) {
+        restless[root(body)] = currentStamp;
+    }
+
+    /** True if no body in the island containing {@code body} was marked restless. */
+    boolean isResting(int body) {
+        return restless[root(body)] != currentStamp;
+    }
+
+    private void union(int a, int b) {
+        int ra = root(a);
+        int rb = root(b);
+        if (ra == rb)
+            return;
+        // keep the lower index as root so the structure is order independent
+        if (ra < rb)
+            parent[rb] = ra;
+        else
+            parent[ra] = rb;
+    }
+
+    private void touch(int body) {
+        if (stamp[body] != currentStamp) {
+            stamp[body] = currentStamp;
+            parent[body] = body;
+            islandOfRoot[body] = -1;
+        }
+    }
+
+    private void ensureCapacity(int n, int m) {
+        if (parent.length < n) {
+            int cap = Math.max(n, parent.length * 2);
+            parent = Arrays.copyOf(parent, cap);
+            stamp = Arrays.copyOf(stamp, cap);
+            islandOfRoot = Arrays.copyOf(islandOfRoot, cap);
+            restless = Arrays.copyOf(restless, cap);
+        }
+        if (contactIsland.length < m) {
+            int cap = Math.max(m, contactIsland.length * 2);
+            contactIsland = new int[cap];
+            contactOrder = new int[cap];
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.audio.physics3d;
+
+import java.util.List;
+
+/**
+ * Reports every pair of colliders, exactly like the original O(n^2) loop.
+ * Useful as a reference when checking the other broad phases.
+ */
+public class NaiveBroadPhase3D implements BroadPhase3D {
+
+    @Override
+    public void findPairs(List<Collider3D> colliders, BodyStore3D store, boolean includeStatics, PairBuffer3D out) {
+        out.clear();
+        int n = colliders.size();
+        for (int i = 0; i < n; i++) {
+            if (!includeStatics && store.invMass[i] == 0f)
+                continue;
+            for (int j = i + 1; j < n; j++) {
+                if (!includeStatics && store.invMass[j] == 0f)
+                    continue;
+                out.add(i, j);
+            }
+        }
+    }
+}
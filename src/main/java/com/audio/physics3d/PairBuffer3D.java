@@ -0,0 +1,50 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of index pairs, reused between steps.
+ *
+ * Each pair is packed into a single long (first index in the high word), so
+ * sorting the buffer gives the same (i, j) order as a nested i &lt; j loop.
+ */
+public class PairBuffer3D {
+
+    private long[] keys;
+    private int size;
+
+    public PairBuffer3D() {
+        this(64);
+    }
+
+    public PairBuffer3D(int initialCapacity) {
+        keys = new long[Math.max(1, initialCapacity)];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int a, int b) {
+        if (size == keys.length)
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        keys[size++] = ((long) a << 32) | (b & 0xffffffffL);
+    }
+
+    /** Sorts pairs into ascending (first, second) order. */
+    public void sort() {
+        Arrays.sort(keys, 0, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int first(int pair) {
+        return (int) (keys[pair] >>> 32);
+    }
+
+    public int second(int pair) {
+        return (int) keys[pair];
+    }
+}
@@ -0,0 +1,21 @@
+package com.audio.physics3d;
+
+/**
+ * The original one-shot resolution: each contact is fixed once and in
+ * isolation by {@link Collision3D#resolveContact}.
+ */
+public class PairwiseContactSolver3D implements ContactSolver3D {
+
+    private final float restitution;
+
+    public PairwiseContactSolver3D(float restitution) {
+        this.restitution = restitution;
+    }
+
+    @Override
+    public void solve(ContactManifold3D contacts, int[] order, int from, int to, BodyStore3D store, float dt) {
+        for (int k = from; k < to; k++) {
+            Collision3D.resolveContact(contacts, order[k], store, restitution);
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.audio.physics3d;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.joml.Vector3f;
-import com.audio.Game3D;
 
 public class PhysicsEngine3D {
 	public List<RigidBody3D> bodies = new ArrayList<>();
 	public List<Collider3D> colliders = new ArrayList<>();
-	public Game3D main;
+
+	// structure-of-arrays state for every body, indexed like `bodies`
+	public final BodyStore3D store = new BodyStore3D();
 
 	// world gravity (m/s^2)
 	public Vector3f gravity = new Vector3f(0f, -9.81f, 0f);
@@ -19,15 +23,249 @@ public class PhysicsEngine3D {
 	// time accumulator for fixed-step
 	private float accumulator = 0f;
 
-	public PhysicsEngine3D(Game3D main) {
-		this.main = main;
+	// fixed steps taken since the engine was created
+	private long tick = 0;
+
+	// deterministic mode: frame time is accumulated in whole nanoseconds
+	// and every step ends by hashing the state
+	private boolean deterministic = false;
+	private long accumulatorNanos = 0;
+	private long tickHash = 0;
+	private final XxHash64 hasher = new XxHash64(0);
+	private static final long FIXED_NANOS = 1_000_000_000L / 60;
+	private static final long MAX_ACCUMULATED_NANOS = 250_000_000L;
+
+	// broad phase and its reusable candidate pair buffer
+	private BroadPhase3D broadPhase = new SweepAndPruneBroadPhase3D();
+	private final PairBuffer3D pairs = new PairBuffer3D();
+
+	// static colliders live in a BVH that awake bodies query, instead of
+	// in the broad phase; rebuilt when statics are added, refit when they move
+	private final Bvh3D staticBvh = new Bvh3D();
+	private boolean useStaticBvh = true;
+	private boolean staticsAdded = false;
+
+	// spatial queries: dynamic bodies get their own tree, refit on the first
+	// query after each step and rebuilt when bodies were added (or after
+	// enough refits that it has grown loose)
+	private final Bvh3D dynamicBvh = new Bvh3D();
+	private long dynamicBvhTick = -1;
+	private int dynamicBvhBodies = -1;
+	private int dynamicBvhRefits;
+	private int[] queryStack = new int[0];
+	// traversal stacks for parallel casts, one per worker thread, kept between batches
+	private final ThreadLocal<int[]> workerStacks = ThreadLocal.withInitial(() -> new int[0]);
+	private static final int MAX_REFITS = 30;
+
+	// contacts found by the narrow phase this step, and the solver for them
+	private final ContactManifold3D contacts = new ContactManifold3D();
+	private ContactSolver3D solver = new SequentialImpulseSolver3D(8, 0.8f);
+	private int[] contactOrder = new int[0];
+
+	// continuous collision detection: bodies swept this step, and the
+	// earliest time of impact (fraction of the step) found for each
+	private int[] swept = new int[0];
+	private int sweptCount;
+	private float[] impactTime = new float[0];
+
+	// swept bodies are stopped this far inside what they hit (m), so the
+	// narrow phase reports the contact
+	private static final float CCD_SKIN = 0.01f;
+
+	// parallel stepping: islands are resolved concurrently on the pool
+	private boolean parallel = false;
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private final IslandBuilder3D islands = new IslandBuilder3D();
+
+	// work below these sizes is not worth forking
+	private static final int INTEGRATE_GRAIN = 4096;
+	private static final int RESOLVE_GRAIN = 256;
+	private static final int CAST_GRAIN = 64;
+
+	// contacts closing faster than this are reported to the listener (m/s)
+	private float impactSpeed = 0.2f;
+	private CollisionListener3D listener;
+	// impacts are also pushed here, when set, for consumers on other threads
+	private ImpactBuffer3D impacts;
+
+	// sleeping: an island sleeps once all its bodies stayed below the
+	// speed threshold for sleepSteps consecutive steps
+	private boolean sleeping = true;
+	private float sleepSpeed = 0.05f;
+	private int sleepSteps = 60;
+
+	/**
+	 * Creates an empty world. The engine has no dependency on rendering or
+	 * audio, so it runs headless; see {@link #advance(int)}.
+	 */
+	public PhysicsEngine3D() {
 	}
 
 	public void addBody(RigidBody3D body, Collider3D collider) {
+		body.attach(store);
 		bodies.add(body);
 		colliders.add(collider);
-		// ensure collider position is initialised to body position
-		collider.position = body.position;
+		// collider gets its own vector, kept in sync with the store every step
+		collider.position = body.getPosition(new Vector3f());
+		if (body.isStatic)
+			staticsAdded = true;
+	}
+
+	/**
+	 * Selects the broad phase used to cull collider pairs. Pass a
+	 * {@link NaiveBroadPhase3D} to test every pair like the original loop.
+	 */
+	public void setBroadPhase(BroadPhase3D broadPhase) {
+		this.broadPhase = broadPhase;
+	}
+
+	public BroadPhase3D getBroadPhase() {
+		return broadPhase;
+	}
+
+	/**
+	 * Keeps static colliders in a bounding volume hierarchy that each awake
+	 * body queries, rather than in the broad phase (on by default). Finds
+	 * the same pairs either way; the tree pays off with many statics.
+	 */
+	public void setStaticBvh(boolean useStaticBvh) {
+		this.useStaticBvh = useStaticBvh;
+		staticsAdded = true;
+	}
+
+	public boolean isStaticBvh() {
+		return useStaticBvh;
+	}
+
+	/**
+	 * Enables island-parallel stepping. Integration is split across body
+	 * ranges and each contact island is resolved as one task, so results
+	 * are identical to the single-threaded step for any number of threads.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Selects the contact solver. Defaults to a {@link SequentialImpulseSolver3D};
+	 * pass a {@link PairwiseContactSolver3D} for the original one-shot resolution.
+	 */
+	public void setSolver(ContactSolver3D solver) {
+		this.solver = solver;
+	}
+
+	public ContactSolver3D getSolver() {
+		return solver;
+	}
+
+	/** Contacts produced by the most recent step. */
+	public ContactManifold3D getContacts() {
+		return contacts;
+	}
+
+	/**
+	 * Enables automatic sleeping of resting bodies. Sleeping bodies are not
+	 * integrated or tested against each other; contact with an awake body,
+	 * an applied force or a new position or velocity wakes them.
+	 */
+	public void setSleeping(boolean sleeping) {
+		this.sleeping = sleeping;
+		if (!sleeping) {
+			for (int i = 0; i < store.size(); i++)
+				store.wake(i);
+		}
+	}
+
+	/** A body sleeps after {@code steps} steps below {@code speed} (m/s). */
+	public void setSleepThreshold(float speed, int steps) {
+		this.sleepSpeed = speed;
+		this.sleepSteps = steps;
+	}
+
+	/** Listener told about impacts after each step, or null for none. */
+	public void setCollisionListener(CollisionListener3D listener) {
+		this.listener = listener;
+	}
+
+	public CollisionListener3D getCollisionListener() {
+		return listener;
+	}
+
+	/** Buffer every reported impact is pushed into after each step, or null for none. */
+	public void setImpactBuffer(ImpactBuffer3D impacts) {
+		this.impacts = impacts;
+	}
+
+	public ImpactBuffer3D getImpactBuffer() {
+		return impacts;
+	}
+
+	/** Minimum closing speed (m/s) of a contact reported to the listener. */
+	public void setImpactSpeed(float impactSpeed) {
+		this.impactSpeed = impactSpeed;
+	}
+
+	/**
+	 * Deterministic lockstep mode. Steps are already reproducible: Java float
+	 * arithmetic is strict IEEE 754, the physics only uses exactly rounded
+	 * operations (sqrt, abs, min, max), contacts are solved in sorted body
+	 * pair order, islands in a fixed order whatever the thread count, and no
+	 * hash table is ever iterated. This mode adds what lockstep peers need
+	 * on top: {@link #update} counts frame time in whole nanoseconds, so the
+	 * number of steps taken for a given series of frame times cannot depend
+	 * on float rounding, and each step records {@link #getTickHash()}.
+	 *
+	 * Peers stay in step as long as they add the same bodies in the same
+	 * order and apply the same inputs before the same ticks.
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+		accumulator = 0f;
+		accumulatorNanos = 0;
+	}
+
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	/**
+	 * {@link #stateHash()} as of the end of the last step, recorded in
+	 * deterministic mode. Comparing it between peers or against a recording
+	 * finds the first diverging tick.
+	 */
+	public long getTickHash() {
+		return tickHash;
+	}
+
+	/**
+	 * XXH64 of the simulation state: the tick, and every body's position,
+	 * velocity, pending force, awake flag and sleep counter, by raw bits.
+	 */
+	public long stateHash() {
+		int n = store.size();
+		hasher.reset();
+		hasher.update(tick);
+		hasher.update(store.posX, n);
+		hasher.update(store.posY, n);
+		hasher.update(store.posZ, n);
+		hasher.update(store.velX, n);
+		hasher.update(store.velY, n);
+		hasher.update(store.velZ, n);
+		hasher.update(store.forceX, n);
+		hasher.update(store.forceY, n);
+		hasher.update(store.forceZ, n);
+		hasher.update(store.awake, n);
+		hasher.update(store.sleepCounter, n);
+		return hasher.digest();
+	}
+
+	/** Pool used by the parallel step; defaults to the common pool. */
+	public void setExecutor(ForkJoinPool pool) {
+		this.pool = pool;
 	}
 
 	/**
@@ -36,6 +274,14 @@ public class PhysicsEngine3D {
 	public void update(float frameDt) {
 		if (frameDt <= 0)
 			return;
+		if (deterministic) {
+			accumulatorNanos = Math.min(accumulatorNanos + (long) (frameDt * 1e9), MAX_ACCUMULATED_NANOS);
+			while (accumulatorNanos >= FIXED_NANOS) {
+				step(FIXED_DT);
+				accumulatorNanos -= FIXED_NANOS;
+			}
+			return;
+		}
 		accumulator += frameDt;
 
 		// clamp accumulator to avoid spiral of death
@@ -48,33 +294,423 @@ public class PhysicsEngine3D {
 		}
 	}
 
+	/** Advances the simulation by exactly one fixed step. */
+	public void step() {
+		step(FIXED_DT);
+	}
+
+	/**
+	 * Runs {@code ticks} fixed steps back to back, independent of wall-clock
+	 * time. Meant for headless use: server simulations, batch runs and tests.
+	 */
+	public void advance(int ticks) {
+		for (int t = 0; t < ticks; t++)
+			step(FIXED_DT);
+	}
+
+	/** Length of one fixed step, in seconds. */
+	public float getFixedDt() {
+		return FIXED_DT;
+	}
+
+	/** Length of one fixed step, in nanoseconds. */
+	public long getFixedStepNanos() {
+		return FIXED_NANOS;
+	}
+
+	/** Number of fixed steps taken so far. */
+	public long getTick() {
+		return tick;
+	}
+
+	// -------------------------------------------------------------
+	// State
+	// -------------------------------------------------------------
+
+	/**
+	 * Copies the world's per-tick state into {@code out}: the tick, every
+	 * body's state and the solver's carried impulses. Costs one array copy
+	 * per field.
+	 */
+	public void saveState(WorldState3D out) {
+		store.save(out);
+		out.tick = tick;
+		solver.saveState(out);
+	}
+
+	/**
+	 * Puts the world back into a state saved from it (or from a world built
+	 * the same way). Stepping on from there gives exactly the ticks that
+	 * followed the save, given the same inputs.
+	 */
+	public void restoreState(WorldState3D in) {
+		store.restore(in);
+		tick = in.tick;
+		solver.restoreState(in);
+		accumulator = 0f;
+		accumulatorNanos = 0;
+
+		// colliders and trees catch up now so queries see the restored world
+		for (int i = 0; i < colliders.size(); i++) {
+			Collider3D c = colliders.get(i);
+			c.sweepX = c.sweepY = c.sweepZ = 0f;
+			syncCollider(i);
+		}
+		store.staticsMoved = false;
+		if (!staticsAdded)
+			staticBvh.refit(colliders);
+		dynamicBvhTick = -1;
+		if (deterministic)
+			tickHash = stateHash();
+	}
+
+	// -------------------------------------------------------------
+	// Queries
+	// -------------------------------------------------------------
+	// Queries see the world as of the last step and walk the static and
+	// dynamic trees, so their cost grows with log(bodies), not bodies. Call
+	// them from the thread that steps the engine, between steps.
+
+	/** Casts every ray in the batch and stores the closest hit of each. */
+	public void raycast(RayBatch3D rays) {
+		cast(rays, 0f, false);
+	}
+
+	/** Sweeps a sphere of {@code radius} along every ray in the batch. */
+	public void sphereCast(RayBatch3D rays, float radius) {
+		cast(rays, radius, false);
+	}
+
+	/** {@link #raycast} with the batch split across the engine's pool. */
+	public void raycastParallel(RayBatch3D rays) {
+		cast(rays, 0f, true);
+	}
+
+	/** {@link #sphereCast} with the batch split across the engine's pool. */
+	public void sphereCastParallel(RayBatch3D rays, float radius) {
+		cast(rays, radius, true);
+	}
+
+	/**
+	 * Writes to {@code out} the indices of the bodies whose colliders overlap
+	 * the box [min, max]. Returns how many there are, which may exceed
+	 * {@code out.length}; only the first {@code out.length} are written.
+	 */
+	public int overlap(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int[] out) {
+		prepareQueries();
+		int n = staticBvh.overlap(colliders, minX, minY, minZ, maxX, maxY, maxZ, out, 0, queryStack);
+		return dynamicBvh.overlap(colliders, minX, minY, minZ, maxX, maxY, maxZ, out, n, queryStack);
+	}
+
+	private void cast(RayBatch3D rays, float radius, boolean parallel) {
+		prepareQueries();
+		if (parallel && rays.size() > CAST_GRAIN)
+			pool.invoke(new CastTask(rays, 0, rays.size(), radius));
+		else
+			castRange(rays, 0, rays.size(), radius, queryStack);
+	}
+
+	private void castRange(RayBatch3D rays, int from, int to, float radius, int[] stack) {
+		for (int r = from; r < to; r++) {
+			rays.resetHit(r);
+			if (rays.dirX[r] == 0f && rays.dirY[r] == 0f && rays.dirZ[r] == 0f)
+				continue;
+			staticBvh.castRay(colliders, rays, r, radius, stack);
+			dynamicBvh.castRay(colliders, rays, r, radius, stack);
+		}
+	}
+
+	private void prepareQueries() {
+		updateStaticBvh(false);
+		if (dynamicBvhBodies != bodies.size() || dynamicBvhRefits >= MAX_REFITS) {
+			dynamicBvh.build(colliders, store, false);
+			dynamicBvhBodies = bodies.size();
+			dynamicBvhRefits = 0;
+		} else if (dynamicBvhTick != tick) {
+			dynamicBvh.refit(colliders);
+			dynamicBvhRefits++;
+		}
+		dynamicBvhTick = tick;
+		int stackSize = Math.max(staticBvh.stackSize(), dynamicBvh.stackSize());
+		if (queryStack.length < stackSize)
+			queryStack = new int[stackSize];
+	}
+
 	private void step(float dt) {
-		// 1) apply gravity and integrate
-		for (RigidBody3D body : bodies) {
-			if (!body.isStatic) {
-				// apply gravity as force = mass * g
-				Vector3f gForce = gravity.mul(body.mass, new Vector3f());
-				body.applyForce(gForce);
+		// 1) apply gravity and integrate the awake bodies
+		if (parallel)
+			pool.invoke(new IntegrateTask(0, store.activeCount(), dt));
+		else
+			store.integrate(dt, gravity.x, gravity.y, gravity.z);
+
+		// 2) sync collider positions, and give continuous colliders their sweep
+		boolean staticsMoved = store.staticsMoved;
+		syncActiveColliders();
+		beginSweeps(dt);
+
+		// 3) broad phase: collect candidate pairs, sorted so every broad phase
+		// resolves them in the same order as the naive loop. Pairs with a
+		// static body come from the static BVH when it is in use.
+		updateStaticBvh(staticsMoved);
+		if (useStaticBvh) {
+			broadPhase.findPairs(colliders, store, false, pairs);
+			for (int k = 0; k < store.activeCount(); k++) {
+				int i = store.active[k];
+				staticBvh.findPairs(i, colliders.get(i), pairs);
 			}
-			body.integrate(dt);
+		} else {
+			broadPhase.findPairs(colliders, store, true, pairs);
 		}
+		pairs.sort();
 
-		// 2) sync collider positions
-		for (int i = 0; i < colliders.size(); i++) {
-			colliders.get(i).position = bodies.get(i).position;
-		}
-
-		// 3) narrow-phase collision detection & resolution (naive O(n^2))
-		int n = bodies.size();
-		for (int i = 0; i < n; i++) {
-			for (int j = i + 1; j < n; j++) {
-				Collider3D a = colliders.get(i);
-				Collider3D b = colliders.get(j);
-				if (a.isColliding(b)) {
-					// resolve using your Collision3D helper
-					Collision3D.resolve(bodies.get(i), a, bodies.get(j), b, 0.8f, main);
+		// 3b) stop swept bodies at their first impact along the path
+		if (sweptCount > 0)
+			clampToImpacts();
+
+		// 4) narrow phase: write contacts for the candidates that overlap
+		contacts.clear();
+		for (int p = 0; p < pairs.size(); p++) {
+			int i = pairs.first(p);
+			int j = pairs.second(p);
+			if (!store.awake[i] && !store.awake[j])
+				continue;
+			if (Collision3D.detect(i, colliders.get(i), j, colliders.get(j), contacts)) {
+				// an awake body touching a sleeping one wakes it
+				if (!store.awake[i])
+					store.wake(i);
+				if (!store.awake[j])
+					store.wake(j);
+			}
+		}
+
+		// 5) solve the contact buffer, island by island in parallel mode
+		contacts.measureApproachSpeeds(store);
+		solver.prepare(contacts, store, dt);
+		if (parallel || sleeping)
+			islands.build(store, contacts);
+		if (parallel)
+			pool.invoke(new ResolveTask(0, islands.islandCount(), dt));
+		else
+			solveAll(dt);
+		solver.finish(contacts, store);
+		reportImpacts();
+
+		// 6) leave colliders where the solver put the bodies
+		syncActiveColliders();
+
+		// 7) put resting islands to sleep
+		if (sleeping)
+			updateSleep();
+
+		tick++;
+		if (deterministic)
+			tickHash = stateHash();
+	}
+
+	private void syncActiveColliders() {
+		if (store.staticsMoved) {
+			store.staticsMoved = false;
+			for (int i = 0; i < colliders.size(); i++)
+				syncCollider(i);
+			return;
+		}
+		for (int k = 0; k < store.activeCount(); k++)
+			syncCollider(store.active[k]);
+	}
+
+	private void updateStaticBvh(boolean staticsMoved) {
+		if (staticsAdded) {
+			staticBvh.build(colliders, store, true);
+			staticsAdded = false;
+		} else if (staticsMoved) {
+			staticBvh.refit(colliders);
+		}
+	}
+
+	private void beginSweeps(float dt) {
+		sweptCount = 0;
+		for (int k = 0; k < store.activeCount(); k++) {
+			int i = store.active[k];
+			Collider3D c = colliders.get(i);
+			if (!c.continuous)
+				continue;
+			c.sweepX = store.velX[i] * dt;
+			c.sweepY = store.velY[i] * dt;
+			c.sweepZ = store.velZ[i] * dt;
+			if (swept.length == sweptCount)
+				swept = Arrays.copyOf(swept, Math.max(16, sweptCount * 2));
+			swept[sweptCount++] = i;
+		}
+		if (impactTime.length < store.size())
+			impactTime = new float[Math.max(store.size(), impactTime.length * 2)];
+		for (int k = 0; k < sweptCount; k++)
+			impactTime[swept[k]] = 1f;
+	}
+
+	/**
+	 * Sweeps every continuous body against its broad-phase candidates, each
+	 * held at its end-of-step position, and moves the body back to the
+	 * earliest impact. The body keeps its velocity; the solver then handles
+	 * the contact like any other.
+	 */
+	private void clampToImpacts() {
+		for (int p = 0; p < pairs.size(); p++) {
+			int i = pairs.first(p);
+			int j = pairs.second(p);
+			Collider3D ci = colliders.get(i);
+			Collider3D cj = colliders.get(j);
+			if (ci.continuous && store.awake[i])
+				impactTime[i] = Math.min(impactTime[i], Collision3D.timeOfImpact(ci, cj, CCD_SKIN));
+			if (cj.continuous && store.awake[j])
+				impactTime[j] = Math.min(impactTime[j], Collision3D.timeOfImpact(cj, ci, CCD_SKIN));
+		}
+		for (int k = 0; k < sweptCount; k++) {
+			int i = swept[k];
+			Collider3D c = colliders.get(i);
+			float back = 1f - impactTime[i];
+			if (back > 0f) {
+				store.posX[i] -= c.sweepX * back;
+				store.posY[i] -= c.sweepY * back;
+				store.posZ[i] -= c.sweepZ * back;
+				syncCollider(i);
+			}
+			c.sweepX = c.sweepY = c.sweepZ = 0f;
+		}
+		sweptCount = 0;
+	}
+
+	private void updateSleep() {
+		float limit = sleepSpeed * sleepSpeed;
+		for (int k = 0; k < store.activeCount(); k++) {
+			int i = store.active[k];
+			float speedSq = store.velX[i] * store.velX[i] + store.velY[i] * store.velY[i]
+					+ store.velZ[i] * store.velZ[i];
+			if (speedSq < limit)
+				store.sleepCounter[i]++;
+			else
+				store.sleepCounter[i] = 0;
+			if (store.sleepCounter[i] < sleepSteps)
+				islands.markRestless(i);
+		}
+		// walk backwards: sleeping removes from the active list by swapping in the last entry
+		for (int k = store.activeCount() - 1; k >= 0; k--) {
+			int i = store.active[k];
+			if (islands.isResting(i))
+				store.sleep(i);
+		}
+	}
+
+	private void solveAll(float dt) {
+		int n = contacts.size();
+		if (contactOrder.length < n) {
+			contactOrder = new int[Math.max(n, contactOrder.length * 2)];
+			for (int c = 0; c < contactOrder.length; c++)
+				contactOrder[c] = c;
+		}
+		solver.solve(contacts, contactOrder, 0, n, store, dt);
+	}
+
+	private void reportImpacts() {
+		if (listener == null && impacts == null)
+			return;
+		for (int c = 0; c < contacts.size(); c++) {
+			if (contacts.approachSpeed[c] <= impactSpeed)
+				continue;
+			if (impacts != null) {
+				impacts.push(contacts.bodyA[c], contacts.bodyB[c], contacts.pointX[c], contacts.pointY[c],
+						contacts.pointZ[c], contacts.normalImpulse[c], contacts.approachSpeed[c]);
+			}
+			if (listener != null) {
+				listener.onImpact(bodies.get(contacts.bodyA[c]), bodies.get(contacts.bodyB[c]),
+						contacts.pointX[c], contacts.pointY[c], contacts.pointZ[c], contacts.approachSpeed[c]);
+			}
+		}
+	}
+
+	private void syncCollider(int i) {
+		colliders.get(i).position.set(store.posX[i], store.posY[i], store.posZ[i]);
+	}
+
+	/** Integrates a range of bodies, splitting it while it is large. */
+	private class IntegrateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+		private final float dt;
+
+		IntegrateTask(int from, int to, float dt) {
+			this.from = from;
+			this.to = to;
+			this.dt = dt;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= INTEGRATE_GRAIN) {
+				store.integrate(from, to, dt, gravity.x, gravity.y, gravity.z);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new IntegrateTask(from, mid, dt), new IntegrateTask(mid, to, dt));
+		}
+	}
+
+	/** Casts a range of rays, splitting it while it is large. */
+	private class CastTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RayBatch3D rays;
+		private final int from, to;
+		private final float radius;
+
+		CastTask(RayBatch3D rays, int from, int to, float radius) {
+			this.rays = rays;
+			this.from = from;
+			this.to = to;
+			this.radius = radius;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CAST_GRAIN) {
+				int[] stack = workerStacks.get();
+				if (stack.length < queryStack.length) {
+					stack = new int[queryStack.length];
+					workerStacks.set(stack);
+				}
+				castRange(rays, from, to, radius, stack);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new CastTask(rays, from, mid, radius), new CastTask(rays, mid, to, radius));
+		}
+	}
+
+	/** Resolves a range of islands, splitting it while it holds many contacts. */
+	private class ResolveTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+		private final float dt;
+
+		ResolveTask(int from, int to, float dt) {
+			this.from = from;
+			this.to = to;
+			this.dt = dt;
+		}
+
+		@Override
+		protected void compute() {
+			int work = islands.islandStart(to) - islands.islandStart(from);
+			if (to - from == 1 || work <= RESOLVE_GRAIN) {
+				int[] order = islands.contactOrder();
+				for (int island = from; island < to; island++) {
+					solver.solve(contacts, order, islands.islandStart(island), islands.islandEnd(island), store, dt);
 				}
+				return;
 			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ResolveTask(from, mid, dt), new ResolveTask(mid, to, dt));
 		}
 	}
 }
@@ -0,0 +1,78 @@
+package com.audio.physics3d;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link PhysicsEngine3D} on its own thread at the engine's fixed
+ * rate, publishing positions to a {@link TransformBuffer3D} after every
+ * step.
+ *
+ * Once started, the engine belongs to this thread: other threads should
+ * only read {@link #getTransforms()}, and anything that changes the world
+ * each tick belongs in the pre-tick callback. Collision listeners are
+ * called on this thread.
+ */
+public class PhysicsThread3D {
+
+    // steps to catch up at most before dropping the backlog, as update() clamps to 0.25 s
+    private static final int MAX_CATCH_UP = 15;
+
+    private final PhysicsEngine3D engine;
+    private final TickInput3D preTick;
+    private final TransformBuffer3D transforms = new TransformBuffer3D();
+    private volatile boolean running;
+    private Thread thread;
+
+    public PhysicsThread3D(PhysicsEngine3D engine, TickInput3D preTick) {
+        this.engine = engine;
+        this.preTick = preTick;
+    }
+
+    public TransformBuffer3D getTransforms() {
+        return transforms;
+    }
+
+    public void start() {
+        if (thread != null)
+            return;
+        transforms.publish(engine, engine.getFixedStepNanos());
+        running = true;
+        thread = new Thread(this::run, "physics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops the thread and waits for the step in progress to finish. */
+    public void stop() {
+        if (thread == null)
+            return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    private void run() {
+        long stepNanos = engine.getFixedStepNanos();
+        long next = System.nanoTime() + stepNanos;
+        while (running) {
+            long now = System.nanoTime();
+            int steps = 0;
+            while (now - next >= 0 && steps < MAX_CATCH_UP) {
+                if (preTick != null)
+                    preTick.apply(engine, engine.getTick());
+                engine.step();
+                transforms.publish(engine, stepNanos);
+                next += stepNanos;
+                steps++;
+            }
+            if (steps == MAX_CATCH_UP)
+                next = System.nanoTime() + stepNanos;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+    }
+}
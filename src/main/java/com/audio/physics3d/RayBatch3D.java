@@ -0,0 +1,116 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * A batch of rays for {@link PhysicsEngine3D#raycast} and
+ * {@link PhysicsEngine3D#sphereCast}, with room for one result per ray.
+ *
+ * Rays and results are kept in parallel arrays indexed by the value
+ * {@link #add} returns. The arrays only grow, so a batch that is cleared
+ * and refilled each frame allocates nothing once it has reached its
+ * working size.
+ */
+public class RayBatch3D {
+
+    // rays; directions are unit length
+    public float[] originX, originY, originZ;
+    public float[] dirX, dirY, dirZ;
+    public float[] maxDistance;
+
+    // results: the closest body hit (-1 for none), how far along the ray,
+    // and the surface normal there
+    public int[] hitBody;
+    public float[] hitDistance;
+    public float[] hitNormalX, hitNormalY, hitNormalZ;
+
+    private int size;
+
+    public RayBatch3D() {
+        this(64);
+    }
+
+    public RayBatch3D(int initialCapacity) {
+        int cap = Math.max(1, initialCapacity);
+        originX = new float[cap];
+        originY = new float[cap];
+        originZ = new float[cap];
+        dirX = new float[cap];
+        dirY = new float[cap];
+        dirZ = new float[cap];
+        maxDistance = new float[cap];
+        hitBody = new int[cap];
+        hitDistance = new float[cap];
+        hitNormalX = new float[cap];
+        hitNormalY = new float[cap];
+        hitNormalZ = new float[cap];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a ray from the origin along (dx, dy, dz), which need not be unit
+     * length, up to {@code maxDistance}. A zero direction never hits.
+     *
+     * @return the ray's index
+     */
+    public int add(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance) {
+        if (size == originX.length)
+            grow(size * 2);
+        int r = size++;
+        float len = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        float inv = len > 0f ? 1f / len : 0f;
+        originX[r] = ox;
+        originY[r] = oy;
+        originZ[r] = oz;
+        dirX[r] = dx * inv;
+        dirY[r] = dy * inv;
+        dirZ[r] = dz * inv;
+        this.maxDistance[r] = maxDistance;
+        hitBody[r] = -1;
+        return r;
+    }
+
+    public boolean hasHit(int r) {
+        return hitBody[r] >= 0;
+    }
+
+    public float hitPointX(int r) {
+        return originX[r] + dirX[r] * hitDistance[r];
+    }
+
+    public float hitPointY(int r) {
+        return originY[r] + dirY[r] * hitDistance[r];
+    }
+
+    public float hitPointZ(int r) {
+        return originZ[r] + dirZ[r] * hitDistance[r];
+    }
+
+    /** Forgets the result of ray {@code r} before it is cast again. */
+    void resetHit(int r) {
+        hitBody[r] = -1;
+        hitDistance[r] = maxDistance[r];
+    }
+
+    private void grow(int capacity) {
+        originX = Arrays.copyOf(originX, capacity);
+        originY = Arrays.copyOf(originY, capacity);
+        originZ = Arrays.copyOf(originZ, capacity);
+        dirX = Arrays.copyOf(dirX, capacity);
+        dirY = Arrays.copyOf(dirY, capacity);
+        dirZ = Arrays.copyOf(dirZ, capacity);
+        maxDistance = Arrays.copyOf(maxDistance, capacity);
+        hitBody = Arrays.copyOf(hitBody, capacity);
+        hitDistance = Arrays.copyOf(hitDistance, capacity);
+        hitNormalX = Arrays.copyOf(hitNormalX, capacity);
+        hitNormalY = Arrays.copyOf(hitNormalY, capacity);
+        hitNormalZ = Arrays.copyOf(hitNormalZ, capacity);
+    }
+}
@@ -1,52 +1,151 @@
 package com.audio.physics3d;
 
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
 import com.audio.Mesh;
 
+/**
+ * Handle onto one slot of a {@link BodyStore3D}.
+ *
+ * A new body owns a private single-slot store; {@link PhysicsEngine3D#addBody}
+ * moves its state into the engine's store, after which every accessor reads
+ * and writes the engine's arrays directly.
+ *
+ * Applying a force or setting the position or velocity wakes a sleeping body.
+ */
 public class RigidBody3D {
-  public Vector3f position;
-  public Vector3f velocity;
-  public Vector3f accumulatedForce;
-  public float mass;      // mass == 0 => static body
-  public boolean isStatic;
+  public final float mass;      // mass == 0 => static body
+  public final boolean isStatic;
   public Mesh mesh;
   public float[] colour = new float[] { 0.5f, 0.5f, 0.5f };
 
+  BodyStore3D store;
+  int index;
+
   public RigidBody3D(Vector3f position, float mass, boolean isStatic, Mesh mesh) {
-    this.position = position;
-    this.velocity = new Vector3f(0, 0, 0);
-    this.accumulatedForce = new Vector3f(0, 0, 0);
     this.mass = mass;
     this.isStatic = isStatic || mass <= 0f;
     this.mesh = mesh;
+    this.store = new BodyStore3D(1);
+    this.index = store.add(position.x, position.y, position.z, this.isStatic ? 0f : 1.0f / mass);
+  }
+
+  /** Moves this body's state into {@code target} and points the handle at it. */
+  void attach(BodyStore3D target) {
+    int i = target.add(store.posX[index], store.posY[index], store.posZ[index], store.invMass[index]);
+    target.velX[i] = store.velX[index];
+    target.velY[i] = store.velY[index];
+    target.velZ[i] = store.velZ[index];
+    target.forceX[i] = store.forceX[index];
+    target.forceY[i] = store.forceY[index];
+    target.forceZ[i] = store.forceZ[index];
+    if (!store.awake[index])
+      target.sleep(i);
+    store = target;
+    index = i;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public boolean isAwake() {
+    return store.awake[index];
+  }
+
+  public void wake() {
+    store.wake(index);
+  }
+
+  /** Called whenever the body is moved from outside the solver. */
+  private void moved() {
+    if (isStatic)
+      store.staticsMoved = true;
+    else
+      store.wake(index);
+  }
+
+  public void applyForce(Vector3fc force) {
+      applyForce(force.x(), force.y(), force.z());
   }
 
-  public void applyForce(Vector3f force) {
+  public void applyForce(float fx, float fy, float fz) {
       if (isStatic) return;
 
-      this.accumulatedForce.add(force);              
+      store.wake(index);
+      store.forceX[index] += fx;
+      store.forceY[index] += fy;
+      store.forceZ[index] += fz;
+  }
+
+  // -------------------------------------------------------------
+  // Position
+  // -------------------------------------------------------------
+  public float getX() { return store.posX[index]; }
+  public float getY() { return store.posY[index]; }
+  public float getZ() { return store.posZ[index]; }
 
+  public Vector3f getPosition(Vector3f dest) {
+    return dest.set(store.posX[index], store.posY[index], store.posZ[index]);
   }
 
-  /** Integrate using semi-implicit Euler: v += a * dt; p += v * dt */
-  public void integrate(float dt) {
-    if (isStatic) {
-        accumulatedForce = new Vector3f(0,0,0);
-        return;
-    }
-    // acceleration = totalForce / mass
-    Vector3f acceleration = accumulatedForce.mul(1.0f / mass, new Vector3f());
-    
-    // integrate velocity
-    velocity.add(acceleration.mul(dt, new Vector3f()));
-    
-    // integrate position (use new velocity)
-    position.add(velocity.mul(dt, new Vector3f()));
+  public void setPosition(float x, float y, float z) {
+    store.posX[index] = x;
+    store.posY[index] = y;
+    store.posZ[index] = z;
+    moved();
+  }
+
+  public void setPosition(Vector3fc position) {
+    setPosition(position.x(), position.y(), position.z());
+  }
+
+  public void translate(float dx, float dy, float dz) {
+    store.posX[index] += dx;
+    store.posY[index] += dy;
+    store.posZ[index] += dz;
+    moved();
+  }
+
+  public void translate(Vector3fc delta) {
+    translate(delta.x(), delta.y(), delta.z());
+  }
+
+  // -------------------------------------------------------------
+  // Velocity
+  // -------------------------------------------------------------
+  public float getVelocityX() { return store.velX[index]; }
+  public float getVelocityY() { return store.velY[index]; }
+  public float getVelocityZ() { return store.velZ[index]; }
+
+  public Vector3f getVelocity(Vector3f dest) {
+    return dest.set(store.velX[index], store.velY[index], store.velZ[index]);
+  }
+
+  public void setVelocity(float vx, float vy, float vz) {
+    store.velX[index] = vx;
+    store.velY[index] = vy;
+    store.velZ[index] = vz;
+    store.wake(index);
+  }
+
+  public void addVelocity(float dvx, float dvy, float dvz) {
+    store.velX[index] += dvx;
+    store.velY[index] += dvy;
+    store.velZ[index] += dvz;
+    store.wake(index);
+  }
+
+  public void addVelocity(Vector3fc delta) {
+    addVelocity(delta.x(), delta.y(), delta.z());
+  }
 
-    // clear force accumulator for next step
-    accumulatedForce = new Vector3f(0, 0, 0);
-    
+  public void scaleVelocity(float s) {
+    store.velX[index] *= s;
+    store.velY[index] *= s;
+    store.velZ[index] *= s;
+    store.wake(index);
   }
 
   public void setColour(float r, float g, float b) {
@@ -0,0 +1,115 @@
+package com.audio.physics3d;
+
+/**
+ * Ring buffer of the last few world states, for rollback and rewind.
+ *
+ * Each slot is a preallocated {@link WorldState3D}, so recording a tick is
+ * one array copy per field and allocates nothing once the slots have grown
+ * to the world's size. The usual loop is:
+ *
+ * <pre>
+ * rollback.record(engine);               // once, before the first step
+ * ...
+ * rollback.advance(engine, inputs);      // every tick
+ * ...
+ * rollback.resimulate(engine, lateTick, inputs);  // when inputs for an old tick change
+ * </pre>
+ *
+ * The state recorded for tick {@code t} is the state before the inputs of
+ * tick {@code t} are applied. The world must not gain bodies while states
+ * are held; states from before a body was added cannot be restored.
+ */
+public class RollbackBuffer3D {
+
+    private final WorldState3D[] states;
+    private final long[] ticks;
+    private long oldest = -1, newest = -1;
+
+    public RollbackBuffer3D(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        states = new WorldState3D[capacity];
+        ticks = new long[capacity];
+        for (int s = 0; s < capacity; s++) {
+            states[s] = new WorldState3D();
+            ticks[s] = -1;
+        }
+    }
+
+    public int capacity() {
+        return states.length;
+    }
+
+    /** Saves the engine's current state under its current tick. */
+    public void record(PhysicsEngine3D engine) {
+        long tick = engine.getTick();
+        int slot = slot(tick);
+        engine.saveState(states[slot]);
+        ticks[slot] = tick;
+        newest = tick;
+        if (oldest < 0 || oldest > tick)
+            oldest = tick;
+        oldest = Math.max(oldest, tick - states.length + 1);
+    }
+
+    /** Whether the state of {@code tick} is still held. */
+    public boolean has(long tick) {
+        return tick >= oldest && tick <= newest && ticks[slot(tick)] == tick;
+    }
+
+    public long oldestTick() {
+        return oldest;
+    }
+
+    public long newestTick() {
+        return newest;
+    }
+
+    /** Applies the inputs for the current tick, steps once and records the result. */
+    public void advance(PhysicsEngine3D engine, TickInput3D input) {
+        if (input != null)
+            input.apply(engine, engine.getTick());
+        engine.step();
+        record(engine);
+    }
+
+    /**
+     * Puts the engine back to {@code tick}. States recorded after it are
+     * dropped, since they no longer follow from the world.
+     *
+     * @throws IllegalArgumentException if the state is no longer held
+     */
+    public void rewind(PhysicsEngine3D engine, long tick) {
+        if (!has(tick))
+            throw new IllegalArgumentException("Tick " + tick + " is not held (" + oldest + ".." + newest + ")");
+        engine.restoreState(states[slot(tick)]);
+        newest = tick;
+    }
+
+    /**
+     * Rewinds to {@code fromTick} and steps back up to the tick the engine
+     * was at, applying {@code input} before every tick and re-recording
+     * each state. Impacts of the replayed ticks are neither sent to the
+     * collision listener nor pushed to the impact buffer; they were
+     * already reported the first time.
+     */
+    public void resimulate(PhysicsEngine3D engine, long fromTick, TickInput3D input) {
+        long target = engine.getTick();
+        rewind(engine, fromTick);
+        CollisionListener3D listener = engine.getCollisionListener();
+        ImpactBuffer3D impacts = engine.getImpactBuffer();
+        engine.setCollisionListener(null);
+        engine.setImpactBuffer(null);
+        try {
+            while (engine.getTick() < target)
+                advance(engine, input);
+        } finally {
+            engine.setCollisionListener(listener);
+            engine.setImpactBuffer(impacts);
+        }
+    }
+
+    private int slot(long tick) {
+        return (int) (tick % states.length);
+    }
+}
@@ -0,0 +1,160 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * Iterative sequential-impulse contact solver with warm starting.
+ *
+ * Every contact gets an accumulated normal impulse that is clamped to stay
+ * non-negative. The solver sweeps over an island's contacts a fixed number
+ * of times, so stacked bodies converge together instead of being pushed
+ * apart pair by pair. Impulses are cached per body pair and applied again at
+ * the start of the next step, so a resting stack starts each step close to
+ * its solution and a few iterations are enough.
+ *
+ * Overlap is removed afterwards by a separate position projection, so the
+ * velocity solve adds no energy when correcting penetration.
+ */
+public class SequentialImpulseSolver3D implements ContactSolver3D {
+
+    private int iterations;
+    private float restitution;
+
+    // contacts closing slower than this do not bounce (m/s)
+    private float restitutionThreshold = 1.0f;
+
+    // position projection: allowed penetration and fraction removed per step
+    private float slop = 0.005f;
+    private float correction = 0.8f;
+
+    private boolean warmStarting = true;
+    private final ContactCache3D cache = new ContactCache3D();
+
+    // per-contact solver data, indexed like the manifold
+    private float[] normalMass = new float[0];
+    private float[] targetVelocity = new float[0];
+
+    public SequentialImpulseSolver3D(int iterations, float restitution) {
+        this.iterations = iterations;
+        this.restitution = restitution;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setRestitution(float restitution) {
+        this.restitution = restitution;
+    }
+
+    public void setWarmStarting(boolean warmStarting) {
+        this.warmStarting = warmStarting;
+        if (!warmStarting)
+            cache.clear();
+    }
+
+    @Override
+    public void prepare(ContactManifold3D contacts, BodyStore3D store, float dt) {
+        int n = contacts.size();
+        if (normalMass.length < n) {
+            int cap = Math.max(n, normalMass.length * 2);
+            normalMass = Arrays.copyOf(normalMass, cap);
+            targetVelocity = Arrays.copyOf(targetVelocity, cap);
+        }
+
+        for (int c = 0; c < n; c++) {
+            float k = store.invMass[contacts.bodyA[c]] + store.invMass[contacts.bodyB[c]];
+            normalMass[c] = k > 0f ? 1f / k : 0f;
+
+            float approach = contacts.approachSpeed[c];
+            targetVelocity[c] = approach > restitutionThreshold ? restitution * approach : 0f;
+
+            contacts.normalImpulse[c] = warmStarting ? cache.lookup(contacts.pairKey(c)) : 0f;
+        }
+    }
+
+    @Override
+    public void solve(ContactManifold3D contacts, int[] order, int from, int to, BodyStore3D store, float dt) {
+        // warm start: re-apply last step's impulses
+        for (int k = from; k < to; k++) {
+            int c = order[k];
+            float impulse = contacts.normalImpulse[c];
+            if (impulse != 0f)
+                applyImpulse(contacts, c, store, impulse);
+        }
+
+        for (int it = 0; it < iterations; it++) {
+            for (int k = from; k < to; k++) {
+                int c = order[k];
+                int a = contacts.bodyA[c];
+                int b = contacts.bodyB[c];
+                float vn = (store.velX[b] - store.velX[a]) * contacts.normalX[c]
+                        + (store.velY[b] - store.velY[a]) * contacts.normalY[c]
+                        + (store.velZ[b] - store.velZ[a]) * contacts.normalZ[c];
+
+                float delta = normalMass[c] * (targetVelocity[c] - vn);
+                float old = contacts.normalImpulse[c];
+                float accumulated = Math.max(old + delta, 0f);
+                contacts.normalImpulse[c] = accumulated;
+                applyImpulse(contacts, c, store, accumulated - old);
+            }
+        }
+
+        // position projection along each normal, split by inverse mass
+        for (int k = from; k < to; k++) {
+            int c = order[k];
+            float push = Math.max(contacts.depth[c] - slop, 0f) * correction * normalMass[c];
+            if (push == 0f)
+                continue;
+            int a = contacts.bodyA[c];
+            int b = contacts.bodyB[c];
+            float ia = store.invMass[a] * push;
+            float ib = store.invMass[b] * push;
+            store.posX[a] -= contacts.normalX[c] * ia;
+            store.posY[a] -= contacts.normalY[c] * ia;
+            store.posZ[a] -= contacts.normalZ[c] * ia;
+            store.posX[b] += contacts.normalX[c] * ib;
+            store.posY[b] += contacts.normalY[c] * ib;
+            store.posZ[b] += contacts.normalZ[c] * ib;
+        }
+    }
+
+    @Override
+    public void finish(ContactManifold3D contacts, BodyStore3D store) {
+        if (!warmStarting)
+            return;
+        int n = contacts.size();
+        cache.beginStore(n);
+        for (int c = 0; c < n; c++) {
+            cache.store(contacts.pairKey(c), contacts.normalImpulse[c]);
+        }
+        cache.endStore();
+    }
+
+    @Override
+    public void saveState(WorldState3D out) {
+        cache.save(out);
+    }
+
+    @Override
+    public void restoreState(WorldState3D in) {
+        cache.restore(in);
+    }
+
+    private static void applyImpulse(ContactManifold3D contacts, int c, BodyStore3D store, float impulse) {
+        int a = contacts.bodyA[c];
+        int b = contacts.bodyB[c];
+        float ia = store.invMass[a] * impulse;
+        float ib = store.invMass[b] * impulse;
+        store.velX[a] -= contacts.normalX[c] * ia;
+        store.velY[a] -= contacts.normalY[c] * ia;
+        store.velZ[a] -= contacts.normalZ[c] * ia;
+        store.velX[b] += contacts.normalX[c] * ib;
+        store.velY[b] += contacts.normalY[c] * ib;
+        store.velZ[b] += contacts.normalZ[c] * ib;
+    }
+}
@@ -0,0 +1,122 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental sweep-and-prune broad phase.
+ *
+ * Colliders are kept sorted by the lower x extent of their bounding box. The
+ * order persists between steps and is repaired with an insertion sort, which
+ * is close to O(n) because bodies move only a little per step. The sweep then
+ * only tests y/z overlap for boxes whose x intervals overlap.
+ *
+ * Pairs where neither body is awake are skipped: static and sleeping bodies
+ * cannot produce a response between themselves. For those bodies the sweep
+ * jumps straight to the next awake entry, so a mostly sleeping scene costs
+ * little beyond keeping the order up to date.
+ *
+ * With statics left out (see {@link BroadPhase3D#findPairs}) static bodies
+ * never enter the sorted order at all.
+ */
+public class SweepAndPruneBroadPhase3D implements BroadPhase3D {
+
+    private int[] order = new int[0]; // collider indices taking part, sorted by min x
+    private int[] nextAwake = new int[1]; // first sorted position >= s holding an awake body
+    private int size;                     // entries in order
+    private int seen;                     // colliders looked at so far
+    private boolean staticsIncluded = true;
+
+    private float[] minX = new float[0], maxX = new float[0];
+    private float[] minY = new float[0], maxY = new float[0];
+    private float[] minZ = new float[0], maxZ = new float[0];
+
+    @Override
+    public void findPairs(List<Collider3D> colliders, BodyStore3D store, boolean includeStatics, PairBuffer3D out) {
+        out.clear();
+        int n = colliders.size();
+        ensureCapacity(n);
+
+        if (n < seen || includeStatics != staticsIncluded) {
+            seen = 0;
+            size = 0;
+            staticsIncluded = includeStatics;
+        }
+        // colliders added since the last step go on the end; the sort below moves them into place
+        while (seen < n) {
+            if (includeStatics || store.invMass[seen] != 0f)
+                order[size++] = seen;
+            seen++;
+        }
+
+        updateBounds(colliders);
+        insertionSort(size);
+
+        boolean[] awake = store.awake;
+        nextAwake[size] = size;
+        for (int s = size - 1; s >= 0; s--)
+            nextAwake[s] = awake[order[s]] ? s : nextAwake[s + 1];
+
+        for (int s = 0; s < size; s++) {
+            int i = order[s];
+            boolean awakeI = awake[i];
+            float maxXi = maxX[i];
+
+            // an awake body checks every neighbour, anything else only awake ones
+            for (int t = awakeI ? s + 1 : nextAwake[s + 1]; t < size; t = awakeI ? t + 1 : nextAwake[t + 1]) {
+                int j = order[t];
+                if (minX[j] > maxXi)
+                    break;
+                if (minY[j] > maxY[i] || maxY[j] < minY[i])
+                    continue;
+                if (minZ[j] > maxZ[i] || maxZ[j] < minZ[i])
+                    continue;
+
+                if (i < j)
+                    out.add(i, j);
+                else
+                    out.add(j, i);
+            }
+        }
+    }
+
+    private void updateBounds(List<Collider3D> colliders) {
+        for (int s = 0; s < size; s++) {
+            int i = order[s];
+            Collider3D c = colliders.get(i);
+            minX[i] = c.minX();
+            maxX[i] = c.maxX();
+            minY[i] = c.minY();
+            maxY[i] = c.maxY();
+            minZ[i] = c.minZ();
+            maxZ[i] = c.maxZ();
+        }
+    }
+
+    private void insertionSort(int n) {
+        for (int s = 1; s < n; s++) {
+            int idx = order[s];
+            float key = minX[idx];
+            int t = s - 1;
+            while (t >= 0 && minX[order[t]] > key) {
+                order[t + 1] = order[t];
+                t--;
+            }
+            order[t + 1] = idx;
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (order.length >= n)
+            return;
+        int cap = Math.max(n, order.length * 2);
+        order = Arrays.copyOf(order, cap);
+        nextAwake = Arrays.copyOf(nextAwake, cap + 1);
+        minX = Arrays.copyOf(minX, cap);
+        maxX = Arrays.copyOf(maxX, cap);
+        minY = Arrays.copyOf(minY, cap);
+        maxY = Arrays.copyOf(maxY, cap);
+        minZ = Arrays.copyOf(minZ, cap);
+        maxZ = Arrays.copyOf(maxZ, cap);
+    }
+}
@@ -0,0 +1,14 @@
+package com.audio.physics3d;
+
+/**
+ * Applies the inputs for one tick (forces, velocities, moved bodies)
+ * before that tick is stepped. Used by {@link RollbackBuffer3D} to replay
+ * ticks with corrected inputs, so it must depend only on the tick and its
+ * own input record, not on wall-clock time.
+ */
+@FunctionalInterface
+public interface TickInput3D {
+
+    /** Called with the engine at {@code tick}, just before it steps to {@code tick + 1}. */
+    void apply(PhysicsEngine3D engine, long tick);
+}
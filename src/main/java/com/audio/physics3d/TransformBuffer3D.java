@@ -0,0 +1,121 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer of body positions, written by the physics thread
+ * after every step and read by the render thread.
+ *
+ * The writer fills its back frame and swaps it with the shared middle
+ * frame; the reader swaps its front frame with the middle one only when a
+ * newer frame was published. Neither side ever waits for the other, and a
+ * frame is never touched by both at once.
+ *
+ * Each frame carries the positions before and after its step, so the
+ * reader can interpolate between them with {@link Frame#alpha}.
+ */
+public class TransformBuffer3D {
+
+    /** Body positions before and after one step, indexed like the engine's bodies. */
+    public static final class Frame {
+        public float[] prevX = new float[0], prevY = new float[0], prevZ = new float[0];
+        public float[] x = new float[0], y = new float[0], z = new float[0];
+        public int count;
+        public long tick;
+        long publishNanos;
+        long stepNanos = 1;
+
+        /**
+         * How far, from 0 to 1, the render time at {@code nowNanos} is into
+         * the step after this frame: the physics accumulator's fraction.
+         */
+        public float alpha(long nowNanos) {
+            float a = (float) (nowNanos - publishNanos) / stepNanos;
+            return a < 0f ? 0f : a > 1f ? 1f : a;
+        }
+
+        public float x(int i, float alpha) {
+            return prevX[i] + (x[i] - prevX[i]) * alpha;
+        }
+
+        public float y(int i, float alpha) {
+            return prevY[i] + (y[i] - prevY[i]) * alpha;
+        }
+
+        public float z(int i, float alpha) {
+            return prevZ[i] + (z[i] - prevZ[i]) * alpha;
+        }
+
+        private void ensureCapacity(int n) {
+            if (x.length >= n)
+                return;
+            prevX = new float[n];
+            prevY = new float[n];
+            prevZ = new float[n];
+            x = new float[n];
+            y = new float[n];
+            z = new float[n];
+        }
+    }
+
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+
+    private final Frame[] frames = { new Frame(), new Frame(), new Frame() };
+    // index of the shared frame, plus FRESH if the reader has not taken it yet
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;   // writer only
+    private int front = 2;  // reader only
+
+    // writer only: positions published last, the next frame's "before"
+    private float[] lastX = new float[0], lastY = new float[0], lastZ = new float[0];
+    private int lastCount = -1;
+
+    /**
+     * Publishes the engine's current positions. Called by the physics
+     * thread after each step; the first call publishes a frame with no motion.
+     */
+    public void publish(PhysicsEngine3D engine, long stepNanos) {
+        BodyStore3D store = engine.store;
+        int n = store.size();
+        Frame f = frames[back];
+        f.ensureCapacity(n);
+        if (lastX.length < n) {
+            lastX = Arrays.copyOf(lastX, n);
+            lastY = Arrays.copyOf(lastY, n);
+            lastZ = Arrays.copyOf(lastZ, n);
+        }
+        // bodies added since the last publish have no "before"; hold them still
+        for (int i = Math.max(lastCount, 0); i < n; i++) {
+            lastX[i] = store.posX[i];
+            lastY[i] = store.posY[i];
+            lastZ[i] = store.posZ[i];
+        }
+        System.arraycopy(lastX, 0, f.prevX, 0, n);
+        System.arraycopy(lastY, 0, f.prevY, 0, n);
+        System.arraycopy(lastZ, 0, f.prevZ, 0, n);
+        System.arraycopy(store.posX, 0, f.x, 0, n);
+        System.arraycopy(store.posY, 0, f.y, 0, n);
+        System.arraycopy(store.posZ, 0, f.z, 0, n);
+        System.arraycopy(store.posX, 0, lastX, 0, n);
+        System.arraycopy(store.posY, 0, lastY, 0, n);
+        System.arraycopy(store.posZ, 0, lastZ, 0, n);
+        lastCount = n;
+        f.count = n;
+        f.tick = engine.getTick();
+        f.stepNanos = stepNanos;
+        f.publishNanos = System.nanoTime();
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * The most recently published frame. Called by the render thread; the
+     * frame stays valid until its next call.
+     */
+    public Frame latest() {
+        if ((middle.get() & FRESH) != 0)
+            front = middle.getAndSet(front) & INDEX;
+        return frames[front];
+    }
+}
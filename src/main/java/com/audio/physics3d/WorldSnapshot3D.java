@@ -0,0 +1,349 @@
+package com.audio.physics3d;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.joml.Vector3f;
+
+/**
+ * Binary snapshots of a physics world, written and read through memory
+ * mapped files.
+ *
+ * A full snapshot holds the bodies and colliders (mass, shape, colour,
+ * name) followed by a {@link WorldState3D}. Every field is stored as one
+ * little-endian column over all bodies, so saving and loading are bulk
+ * copies between the mapped file and the store's arrays rather than a
+ * parse per body.
+ *
+ * A delta snapshot holds only the bodies whose state changed since a base
+ * state, plus the solver's carried impulses. Sleeping and static bodies
+ * never change, so deltas of a mostly resting world are small. Applying a
+ * chain of deltas to the state of the full snapshot they started from
+ * replays the checkpoints in order.
+ *
+ * Meshes and engine settings (broad phase, solver, sleeping, parallel) are
+ * not stored; set them again after {@link #read}.
+ */
+public final class WorldSnapshot3D {
+
+    private static final int MAGIC = 0x4E533350; // "P3SN"
+    private static final int VERSION = 1;
+    private static final int FULL = 0;
+    private static final int DELTA = 1;
+    private static final int HEADER_BYTES = 4 * 4 + 2 * 8;
+
+    private WorldSnapshot3D() {
+    }
+
+    // -------------------------------------------------------------
+    // Full snapshots
+    // -------------------------------------------------------------
+
+    /** Writes every body, collider and the current state of {@code engine} to {@code file}. */
+    public static void write(PhysicsEngine3D engine, Path file) throws IOException {
+        WorldState3D state = new WorldState3D();
+        engine.saveState(state);
+        int n = state.bodyCount;
+
+        byte[][] names = new byte[n][];
+        long nameBytes = 0;
+        for (int i = 0; i < n; i++) {
+            String name = engine.colliders.get(i).name;
+            names[i] = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[i] == null ? 0 : names[i].length;
+        }
+
+        long size = HEADER_BYTES + 3 * 4
+                + (long) n * (4 + 3 + 3 * 4 + 3 * 4 + 4) + nameBytes
+                + stateBytes(n, state.impulseCount);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            putHeader(buf, FULL, n, state.tick, state.tick);
+            buf.putFloat(engine.gravity.x).putFloat(engine.gravity.y).putFloat(engine.gravity.z);
+
+            // definitions, one column per field
+            for (int i = 0; i < n; i++)
+                buf.putFloat(engine.bodies.get(i).mass);
+            for (int i = 0; i < n; i++)
+                buf.put((byte) (engine.bodies.get(i).isStatic ? 1 : 0));
+            for (int i = 0; i < n; i++)
+                buf.put((byte) engine.colliders.get(i).type.ordinal());
+            for (int i = 0; i < n; i++)
+                buf.put((byte) (engine.colliders.get(i).continuous ? 1 : 0));
+            for (int i = 0; i < n; i++)
+                buf.putFloat(engine.colliders.get(i).extentX());
+            for (int i = 0; i < n; i++)
+                buf.putFloat(engine.colliders.get(i).extentY());
+            for (int i = 0; i < n; i++)
+                buf.putFloat(engine.colliders.get(i).extentZ());
+            for (int c = 0; c < 3; c++) {
+                for (int i = 0; i < n; i++)
+                    buf.putFloat(engine.bodies.get(i).colour[c]);
+            }
+            for (int i = 0; i < n; i++)
+                buf.putInt(names[i] == null ? -1 : names[i].length);
+            for (int i = 0; i < n; i++) {
+                if (names[i] != null)
+                    buf.put(names[i]);
+            }
+
+            putState(buf, state);
+            buf.force();
+        }
+    }
+
+    /**
+     * Reads a full snapshot into a new engine, with every body and collider
+     * added in their original order and the saved state restored. Bodies
+     * have no mesh.
+     */
+    public static PhysicsEngine3D read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            int n = getHeader(buf, file, FULL);
+            long tick = buf.getLong();
+            buf.getLong();
+
+            PhysicsEngine3D engine = new PhysicsEngine3D();
+            engine.gravity.set(buf.getFloat(), buf.getFloat(), buf.getFloat());
+
+            float[] mass = getFloats(buf, n);
+            byte[] isStatic = getBytes(buf, n);
+            byte[] shape = getBytes(buf, n);
+            byte[] continuous = getBytes(buf, n);
+            float[] extentX = getFloats(buf, n);
+            float[] extentY = getFloats(buf, n);
+            float[] extentZ = getFloats(buf, n);
+            float[] red = getFloats(buf, n);
+            float[] green = getFloats(buf, n);
+            float[] blue = getFloats(buf, n);
+            int[] nameLength = getInts(buf, n);
+
+            Collider3D.Type[] types = Collider3D.Type.values();
+            for (int i = 0; i < n; i++) {
+                String name = null;
+                if (nameLength[i] >= 0) {
+                    byte[] bytes = new byte[nameLength[i]];
+                    buf.get(bytes);
+                    name = new String(bytes, StandardCharsets.UTF_8);
+                }
+                // positions are placeholders until the state below is restored
+                Vector3f p = new Vector3f();
+                RigidBody3D body = new RigidBody3D(p, mass[i], isStatic[i] != 0, null);
+                body.setColour(red[i], green[i], blue[i]);
+                Collider3D collider = types[shape[i]] == Collider3D.Type.SPHERE
+                        ? new Collider3D(p, extentX[i], name)
+                        : new Collider3D(p, new Vector3f(extentX[i], extentY[i], extentZ[i]), name);
+                collider.continuous = continuous[i] != 0;
+                engine.addBody(body, collider);
+            }
+
+            WorldState3D state = new WorldState3D();
+            getState(buf, n, state);
+            state.tick = tick;
+            engine.restoreState(state);
+            return engine;
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Delta snapshots
+    // -------------------------------------------------------------
+
+    /**
+     * Writes the bodies of {@code current} whose state differs from
+     * {@code base}, bit for bit, plus {@code current}'s carried impulses.
+     * Both states must come from the same world.
+     */
+    public static void writeDelta(WorldState3D base, WorldState3D current, Path file) throws IOException {
+        int n = current.bodyCount;
+        if (base.bodyCount != n)
+            throw new IllegalArgumentException("Base holds " + base.bodyCount + " bodies, current state " + n);
+
+        int changed = 0;
+        for (int i = 0; i < n; i++) {
+            if (differs(base, current, i))
+                changed++;
+        }
+        long size = HEADER_BYTES + 4 + (long) changed * 4 + stateBytes(changed, current.impulseCount);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            putHeader(buf, DELTA, n, current.tick, base.tick);
+            buf.putInt(changed);
+
+            // body indices first, then each column over just those bodies
+            int indices = buf.position();
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (differs(base, current, i))
+                    buf.putInt(indices + 4 * k++, i);
+            }
+            buf.position(indices + 4 * changed);
+            float[][] columns = floatColumns(current);
+            for (float[] column : columns) {
+                for (int j = 0; j < changed; j++)
+                    buf.putFloat(column[buf.getInt(indices + 4 * j)]);
+            }
+            for (int j = 0; j < changed; j++)
+                buf.put((byte) (current.awake[buf.getInt(indices + 4 * j)] ? 1 : 0));
+            for (int j = 0; j < changed; j++)
+                buf.putInt(current.sleepCounter[buf.getInt(indices + 4 * j)]);
+            putImpulses(buf, current);
+            buf.force();
+        }
+    }
+
+    /**
+     * Applies a delta to {@code state}, which must be the state the delta was
+     * written against; afterwards it is the state the delta was taken of.
+     */
+    public static void applyDelta(Path file, WorldState3D state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            int n = getHeader(buf, file, DELTA);
+            long tick = buf.getLong();
+            long baseTick = buf.getLong();
+            if (n != state.bodyCount || baseTick != state.tick)
+                throw new IllegalArgumentException("Delta " + file + " is against tick " + baseTick + " with "
+                        + n + " bodies, state is tick " + state.tick + " with " + state.bodyCount);
+
+            int changed = buf.getInt();
+            int[] indices = getInts(buf, changed);
+            for (float[] column : floatColumns(state)) {
+                for (int j = 0; j < changed; j++)
+                    column[indices[j]] = buf.getFloat();
+            }
+            for (int j = 0; j < changed; j++)
+                state.awake[indices[j]] = buf.get() != 0;
+            for (int j = 0; j < changed; j++)
+                state.sleepCounter[indices[j]] = buf.getInt();
+            getImpulses(buf, state);
+            state.tick = tick;
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Layout helpers
+    // -------------------------------------------------------------
+
+    // nine float columns, one awake byte and one sleep counter per body, then the impulses
+    private static long stateBytes(int bodies, int impulses) {
+        return (long) bodies * (9 * 4 + 1 + 4) + 4 + (long) impulses * (8 + 4);
+    }
+
+    private static float[][] floatColumns(WorldState3D s) {
+        return new float[][] { s.posX, s.posY, s.posZ, s.velX, s.velY, s.velZ, s.forceX, s.forceY, s.forceZ };
+    }
+
+    private static boolean differs(WorldState3D a, WorldState3D b, int i) {
+        return Float.floatToRawIntBits(a.posX[i]) != Float.floatToRawIntBits(b.posX[i])
+                || Float.floatToRawIntBits(a.posY[i]) != Float.floatToRawIntBits(b.posY[i])
+                || Float.floatToRawIntBits(a.posZ[i]) != Float.floatToRawIntBits(b.posZ[i])
+                || Float.floatToRawIntBits(a.velX[i]) != Float.floatToRawIntBits(b.velX[i])
+                || Float.floatToRawIntBits(a.velY[i]) != Float.floatToRawIntBits(b.velY[i])
+                || Float.floatToRawIntBits(a.velZ[i]) != Float.floatToRawIntBits(b.velZ[i])
+                || Float.floatToRawIntBits(a.forceX[i]) != Float.floatToRawIntBits(b.forceX[i])
+                || Float.floatToRawIntBits(a.forceY[i]) != Float.floatToRawIntBits(b.forceY[i])
+                || Float.floatToRawIntBits(a.forceZ[i]) != Float.floatToRawIntBits(b.forceZ[i])
+                || a.awake[i] != b.awake[i]
+                || a.sleepCounter[i] != b.sleepCounter[i];
+    }
+
+    private static void putHeader(MappedByteBuffer buf, int kind, int bodies, long tick, long baseTick) {
+        buf.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(bodies);
+        buf.putLong(tick).putLong(baseTick);
+    }
+
+    // checks magic, version and kind, and returns the body count
+    private static int getHeader(MappedByteBuffer buf, Path file, int kind) throws IOException {
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC)
+            throw new IOException("Not a physics snapshot: " + file);
+        int version = buf.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported snapshot version " + version + ": " + file);
+        if (buf.getInt() != kind)
+            throw new IOException((kind == FULL ? "Expected a full snapshot: " : "Expected a delta snapshot: ") + file);
+        return buf.getInt();
+    }
+
+    private static void putState(MappedByteBuffer buf, WorldState3D s) {
+        int n = s.bodyCount;
+        for (float[] column : floatColumns(s))
+            putFloats(buf, column, n);
+        for (int i = 0; i < n; i++)
+            buf.put((byte) (s.awake[i] ? 1 : 0));
+        buf.asIntBuffer().put(s.sleepCounter, 0, n);
+        buf.position(buf.position() + 4 * n);
+        putImpulses(buf, s);
+    }
+
+    private static void getState(MappedByteBuffer buf, int n, WorldState3D s) {
+        s.ensureCapacity(n, 0);
+        s.bodyCount = n;
+        for (float[] column : floatColumns(s)) {
+            buf.asFloatBuffer().get(column, 0, n);
+            buf.position(buf.position() + 4 * n);
+        }
+        for (int i = 0; i < n; i++)
+            s.awake[i] = buf.get() != 0;
+        buf.asIntBuffer().get(s.sleepCounter, 0, n);
+        buf.position(buf.position() + 4 * n);
+        getImpulses(buf, s);
+    }
+
+    private static void putImpulses(MappedByteBuffer buf, WorldState3D s) {
+        int m = s.impulseCount;
+        buf.putInt(m);
+        buf.asLongBuffer().put(s.impulseKeys, 0, m);
+        buf.position(buf.position() + 8 * m);
+        putFloats(buf, s.impulseValues, m);
+    }
+
+    private static void getImpulses(MappedByteBuffer buf, WorldState3D s) {
+        int m = buf.getInt();
+        s.ensureCapacity(0, m);
+        s.impulseCount = m;
+        buf.asLongBuffer().get(s.impulseKeys, 0, m);
+        buf.position(buf.position() + 8 * m);
+        buf.asFloatBuffer().get(s.impulseValues, 0, m);
+        buf.position(buf.position() + 4 * m);
+    }
+
+    private static void putFloats(MappedByteBuffer buf, float[] a, int n) {
+        buf.asFloatBuffer().put(a, 0, n);
+        buf.position(buf.position() + 4 * n);
+    }
+
+    private static float[] getFloats(MappedByteBuffer buf, int n) {
+        float[] a = new float[n];
+        buf.asFloatBuffer().get(a);
+        buf.position(buf.position() + 4 * n);
+        return a;
+    }
+
+    private static int[] getInts(MappedByteBuffer buf, int n) {
+        int[] a = new int[n];
+        buf.asIntBuffer().get(a);
+        buf.position(buf.position() + 4 * n);
+        return a;
+    }
+
+    private static byte[] getBytes(MappedByteBuffer buf, int n) {
+        byte[] a = new byte[n];
+        buf.get(a);
+        return a;
+    }
+}
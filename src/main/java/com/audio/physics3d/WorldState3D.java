@@ -0,0 +1,73 @@
+package com.audio.physics3d;
+
+import java.util.Arrays;
+
+/**
+ * The per-tick state of a world as plain primitive arrays: everything a
+ * step reads that earlier steps wrote. Captured with
+ * {@link PhysicsEngine3D#saveState} and put back with
+ * {@link PhysicsEngine3D#restoreState}, both straight array copies.
+ *
+ * What a body is (mass, collider shape) is not part of it, so a state can
+ * only be restored into the world it came from, or one built the same way.
+ * The arrays only grow, so one instance can be reused for every save.
+ */
+public class WorldState3D {
+
+    public long tick;
+    public int bodyCount;
+
+    public float[] posX = new float[0], posY = new float[0], posZ = new float[0];
+    public float[] velX = new float[0], velY = new float[0], velZ = new float[0];
+    public float[] forceX = new float[0], forceY = new float[0], forceZ = new float[0];
+    public boolean[] awake = new boolean[0];
+    public int[] sleepCounter = new int[0];
+
+    // impulses the contact solver carries into the next step, keyed by body pair
+    public int impulseCount;
+    public long[] impulseKeys = new long[0];
+    public float[] impulseValues = new float[0];
+
+    /** Makes room for {@code bodies} bodies and {@code impulses} carried impulses. */
+    public void ensureCapacity(int bodies, int impulses) {
+        if (posX.length < bodies) {
+            posX = Arrays.copyOf(posX, bodies);
+            posY = Arrays.copyOf(posY, bodies);
+            posZ = Arrays.copyOf(posZ, bodies);
+            velX = Arrays.copyOf(velX, bodies);
+            velY = Arrays.copyOf(velY, bodies);
+            velZ = Arrays.copyOf(velZ, bodies);
+            forceX = Arrays.copyOf(forceX, bodies);
+            forceY = Arrays.copyOf(forceY, bodies);
+            forceZ = Arrays.copyOf(forceZ, bodies);
+            awake = Arrays.copyOf(awake, bodies);
+            sleepCounter = Arrays.copyOf(sleepCounter, bodies);
+        }
+        if (impulseKeys.length < impulses) {
+            impulseKeys = Arrays.copyOf(impulseKeys, impulses);
+            impulseValues = Arrays.copyOf(impulseValues, impulses);
+        }
+    }
+
+    /** Makes this a copy of {@code other}. */
+    public void set(WorldState3D other) {
+        ensureCapacity(other.bodyCount, other.impulseCount);
+        tick = other.tick;
+        bodyCount = other.bodyCount;
+        int n = bodyCount;
+        System.arraycopy(other.posX, 0, posX, 0, n);
+        System.arraycopy(other.posY, 0, posY, 0, n);
+        System.arraycopy(other.posZ, 0, posZ, 0, n);
+        System.arraycopy(other.velX, 0, velX, 0, n);
+        System.arraycopy(other.velY, 0, velY, 0, n);
+        System.arraycopy(other.velZ, 0, velZ, 0, n);
+        System.arraycopy(other.forceX, 0, forceX, 0, n);
+        System.arraycopy(other.forceY, 0, forceY, 0, n);
+        System.arraycopy(other.forceZ, 0, forceZ, 0, n);
+        System.arraycopy(other.awake, 0, awake, 0, n);
+        System.arraycopy(other.sleepCounter, 0, sleepCounter, 0, n);
+        impulseCount = other.impulseCount;
+        System.arraycopy(other.impulseKeys, 0, impulseKeys, 0, impulseCount);
+        System.arraycopy(other.impulseValues, 0, impulseValues, 0, impulseCount);
+    }
+}
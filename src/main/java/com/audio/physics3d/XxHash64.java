@@ -0,0 +1,133 @@
+package com.audio.physics3d;
+
+/**
+ * Streaming XXH64 over 64-bit words.
+ *
+ * Feeding words {@code w0, w1, ...} gives the standard XXH64 of their
+ * little-endian bytes. Float arrays are packed two values per word by
+ * their raw bits, so the hash sees exactly the stored state.
+ */
+final class XxHash64 {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+    private long v1, v2, v3, v4;
+    private final long[] pending = new long[4];
+    private int pendingCount;
+    private long words;
+
+    XxHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    void reset() {
+        v1 = seed + P1 + P2;
+        v2 = seed + P2;
+        v3 = seed;
+        v4 = seed - P1;
+        pendingCount = 0;
+        words = 0;
+    }
+
+    void update(long word) {
+        pending[pendingCount++] = word;
+        words++;
+        if (pendingCount == 4) {
+            v1 = round(v1, pending[0]);
+            v2 = round(v2, pending[1]);
+            v3 = round(v3, pending[2]);
+            v4 = round(v4, pending[3]);
+            pendingCount = 0;
+        }
+    }
+
+    /** Feeds {@code a[0] .. a[n - 1]}, two per word; an odd last value is padded with 0. */
+    void update(float[] a, int n) {
+        int i = 0;
+        if (pendingCount == 0) {
+            // whole stripes straight into the lanes
+            long a1 = v1, a2 = v2, a3 = v3, a4 = v4;
+            for (; i + 7 < n; i += 8) {
+                a1 = round(a1, pack(a[i], a[i + 1]));
+                a2 = round(a2, pack(a[i + 2], a[i + 3]));
+                a3 = round(a3, pack(a[i + 4], a[i + 5]));
+                a4 = round(a4, pack(a[i + 6], a[i + 7]));
+            }
+            v1 = a1;
+            v2 = a2;
+            v3 = a3;
+            v4 = a4;
+            words += i / 2;
+        }
+        for (; i + 1 < n; i += 2)
+            update(pack(a[i], a[i + 1]));
+        if (i < n)
+            update(Float.floatToRawIntBits(a[i]) & 0xffffffffL);
+    }
+
+    /** Feeds {@code a[0] .. a[n - 1]}, two per word; an odd last value is padded with 0. */
+    void update(int[] a, int n) {
+        int i = 0;
+        for (; i + 1 < n; i += 2)
+            update((a[i] & 0xffffffffL) | ((long) a[i + 1] << 32));
+        if (i < n)
+            update(a[i] & 0xffffffffL);
+    }
+
+    /** Feeds {@code a[0] .. a[n - 1]}, eight flags per word. */
+    void update(boolean[] a, int n) {
+        for (int i = 0; i < n; i += 8) {
+            long word = 0;
+            for (int b = 0; b < 8 && i + b < n; b++) {
+                if (a[i + b])
+                    word |= 1L << (8 * b);
+            }
+            update(word);
+        }
+    }
+
+    long digest() {
+        long h;
+        if (words >= 4) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += words * 8;
+        for (int k = 0; k < pendingCount; k++) {
+            h ^= round(0, pending[k]);
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long pack(float lo, float hi) {
+        return (Float.floatToRawIntBits(lo) & 0xffffffffL) | ((long) Float.floatToRawIntBits(hi) << 32);
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long merge(long acc, long v) {
+        acc ^= round(0, v);
+        return acc * P1 + P4;
+    }
+}